@@ -1,18 +1,33 @@
-import calcite.rules.ArrowTableScanFilterProjectRule;
-import calcite.rules.ArrowTableScanProjectionRule;
+import calcite.metadata.AethraMetadataHandlerProvider;
+import calcite.metadata.CardinalityFeedbackStore;
+import calcite.metadata.SubplanFingerprint;
+import calcite.planner.CommonSubexpressionStage;
+import calcite.planner.DecorrelationStage;
+import calcite.planner.FieldTrimmingStage;
+import calcite.planner.HepPlannerStage;
+import calcite.planner.LateMaterialisationStage;
+import calcite.planner.MaterializationSource;
+import calcite.planner.MaterializedViewRewriteStage;
+import calcite.planner.PlannerStage;
+import calcite.planner.PlanningDeadline;
+import calcite.planner.StageTimings;
+import calcite.rex.AethraRexExecutor;
+import calcite.rules.ArrowTableScanPartitionPruneRule;
 import calcite.rules.ArrowTableScanRule;
+import calcite.rules.JoinConditionSplitRule;
 import org.apache.calcite.jdbc.CalciteSchema;
 import org.apache.calcite.jdbc.JavaTypeFactoryImpl;
-import org.apache.calcite.plan.hep.HepPlanner;
-import org.apache.calcite.plan.hep.HepProgramBuilder;
+import org.apache.calcite.plan.Contexts;
+import org.apache.calcite.plan.hep.HepMatchOrder;
 import org.apache.calcite.prepare.PlannerImpl;
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.rules.AggregateReduceFunctionsRule;
 import org.apache.calcite.rel.rules.FilterJoinRule;
-import org.apache.calcite.rel.rules.ProjectJoinTransposeRule;
 import org.apache.calcite.rel.rules.ProjectRemoveRule;
+import org.apache.calcite.rel.rules.ReduceExpressionsRule;
 import org.apache.calcite.sql.SqlNode;
 import org.apache.calcite.sql.parser.SqlParser;
+import org.apache.calcite.sql2rel.SqlToRelConverter;
 import org.apache.calcite.tools.FrameworkConfig;
 import org.apache.calcite.tools.Frameworks;
 import org.graalvm.nativeimage.IsolateThread;
@@ -20,30 +35,125 @@ import org.graalvm.nativeimage.c.function.CEntryPoint;
 import org.graalvm.nativeimage.c.type.CCharPointer;
 import org.graalvm.nativeimage.c.type.CTypeConversion;
 import org.graalvm.word.Pointer;
+import util.arrow.AethraBatchEncoder;
 import util.arrow.AethraQueryEncoder;
 import util.arrow.ArrowSchemaBuilder;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class PlannerEntryPoint {
 
-    private final static HepPlanner aethraHepPlanner;
+    /**
+     * The match limits of the planning stages, bounding the number of matches per rule in each stage.
+     * The join filter pushdown, join condition splitting and scan conversion stages are required, as the
+     * encoder can only handle joins on a single column equality and fully converted table scans. Their
+     * limits are far beyond the number of matches these stages need for the TPC-H queries, and only bound
+     * their work on plans for which their rules would keep matching.
+     */
+    private final static int NORMALISATION_MATCH_LIMIT = 256;
+    private final static int PUSHDOWN_MATCH_LIMIT = 4096;
+    private final static int JOIN_CONDITION_SPLITTING_MATCH_LIMIT = 4096;
+    private final static int SIMPLIFICATION_MATCH_LIMIT = 1024;
+    private final static int SCAN_CONVERSION_MATCH_LIMIT = 4096;
+    private final static int PROJECTION_CLEANUP_MATCH_LIMIT = 1024;
+
+    /**
+     * The stages of the Aethra planning pipeline, in the order in which they are applied.
+     */
+    private final static PlannerStage[] planningStages;
 
     static {
-        HepProgramBuilder hepProgramBuilder = new HepProgramBuilder();
-        hepProgramBuilder.addRuleInstance(AggregateReduceFunctionsRule.Config.DEFAULT.toRule());
-        hepProgramBuilder.addRuleInstance(FilterJoinRule.FilterIntoJoinRule.FilterIntoJoinRuleConfig.DEFAULT.toRule());
-        hepProgramBuilder.addRuleInstance(ProjectJoinTransposeRule.Config.DEFAULT.toRule());
-        hepProgramBuilder.addRuleInstance(ProjectRemoveRule.Config.DEFAULT.toRule());
-        final ArrowTableScanProjectionRule PROJECT_SCAN = ArrowTableScanProjectionRule.Config.DEFAULT.toRule();
-        hepProgramBuilder.addRuleInstance(PROJECT_SCAN);
+        // Stage 1: remove the subqueries and decorrelate the plan, turning correlated aggregates into joins
+        final DecorrelationStage decorrelationStage = new DecorrelationStage("decorrelation");
+
+        // Stage 2: answer (parts of) the query from the materializations of the database where this is cheaper
+        final MaterializedViewRewriteStage materializedViewRewriteStage = new MaterializedViewRewriteStage("materialized-view-rewrite");
+
+        // Stage 3: normalise the aggregates into forms supported by the engine
+        final HepPlannerStage normalisationStage = HepPlannerStage.builder("normalisation")
+                .required()
+                .matchOrder(HepMatchOrder.ARBITRARY)
+                .matchLimit(NORMALISATION_MATCH_LIMIT)
+                .addRuleInstance(AggregateReduceFunctionsRule.Config.DEFAULT.toRule())
+                .build();
+
+        // Stage 4: push filters into and below joins, starting at the root so each filter moves down in one pass
+        // This stage is required, as comma-style joins only obtain their join condition from the filter above them,
+        // and the encoder cannot emit joins without one, regardless of whether the planning budget was exceeded
+        final HepPlannerStage pushdownStage = HepPlannerStage.builder("join-filter-pushdown")
+                .required()
+                .matchOrder(HepMatchOrder.TOP_DOWN)
+                .matchLimit(PUSHDOWN_MATCH_LIMIT)
+                .addRuleInstance(FilterJoinRule.FilterIntoJoinRule.FilterIntoJoinRuleConfig.DEFAULT.toRule())
+                .build();
+
+        // Stage 5: split the join conditions into the column equality the engine joins on and a filter on top of the
+        // join which evaluates the remaining conjuncts, such as those of the joins obtained from correlated aggregates
+        // This stage is required, as the encoder cannot emit joins on more than a single column equality
+        final HepPlannerStage joinConditionSplittingStage = HepPlannerStage.builder("join-condition-splitting")
+                .required()
+                .matchOrder(HepMatchOrder.BOTTOM_UP)
+                .matchLimit(JOIN_CONDITION_SPLITTING_MATCH_LIMIT)
+                .addRuleInstance(JoinConditionSplitRule.Config.DEFAULT.toRule())
+                .build();
+
+        // Stage 6: fold constant expressions and simplify the predicates of filters and projections
+        // Join conditions are left alone, as the engine only joins on the equality of two columns, while the join
+        // reduction replaces join columns that the inputs pin to a constant by that constant
+        final HepPlannerStage simplificationStage = HepPlannerStage.builder("expression-simplification")
+                .matchOrder(HepMatchOrder.BOTTOM_UP)
+                .matchLimit(SIMPLIFICATION_MATCH_LIMIT)
+                .addRuleInstance(ReduceExpressionsRule.FilterReduceExpressionsRule.FilterReduceExpressionsRuleConfig.DEFAULT.toRule())
+                .addRuleInstance(ReduceExpressionsRule.ProjectReduceExpressionsRule.ProjectReduceExpressionsRuleConfig.DEFAULT.toRule())
+                .build();
+
+        // Stage 7: convert the table scans into arrow table scans, starting at the leaves of the plan,
+        // and prune the partitions read by scans over partitioned tables using the filters on top of them
         final ArrowTableScanRule ARROW_SCAN = ArrowTableScanRule.Config.DEFAULT.toRule();
-        hepProgramBuilder.addRuleInstance(ARROW_SCAN);
-        final ArrowTableScanFilterProjectRule ARROW_SCAN_FILTER_PROJECT = ArrowTableScanFilterProjectRule.Config.DEFAULT.toRule();
-        hepProgramBuilder.addRuleInstance(ARROW_SCAN_FILTER_PROJECT);
+        final ArrowTableScanPartitionPruneRule ARROW_SCAN_PARTITION_PRUNE = ArrowTableScanPartitionPruneRule.Config.DEFAULT.toRule();
+        final HepPlannerStage scanConversionStage = HepPlannerStage.builder("arrow-scan-conversion")
+                .required()
+                .matchOrder(HepMatchOrder.BOTTOM_UP)
+                .matchLimit(SCAN_CONVERSION_MATCH_LIMIT)
+                .addRuleInstance(ARROW_SCAN)
+                .addRuleInstance(ARROW_SCAN_PARTITION_PRUNE)
+                .build();
+
+        // Stage 8: prune the columns of the whole plan in a single pass, pushing them into the arrow table scans
+        final FieldTrimmingStage projectionPruningStage = new FieldTrimmingStage("projection-pruning");
 
-        aethraHepPlanner = new HepPlanner(hepProgramBuilder.build());
+        // Stage 9: remove the trivial projections left behind by the pruning stage
+        final HepPlannerStage projectionCleanupStage = HepPlannerStage.builder("projection-cleanup")
+                .matchOrder(HepMatchOrder.BOTTOM_UP)
+                .matchLimit(PROJECTION_CLEANUP_MATCH_LIMIT)
+                .addRuleInstance(ProjectRemoveRule.Config.DEFAULT.toRule())
+                .build();
+
+        // Stage 10: compute the subexpressions shared by the projections and filters of the plan only once
+        final CommonSubexpressionStage commonSubexpressionStage = new CommonSubexpressionStage("common-subexpression-elimination");
+
+        // Stage 11: determine which scan columns can be materialised after the selective operators have been applied
+        final LateMaterialisationStage lateMaterialisationStage = new LateMaterialisationStage("late-materialisation");
+
+        planningStages = new PlannerStage[] {
+                decorrelationStage,
+                materializedViewRewriteStage,
+                normalisationStage,
+                pushdownStage,
+                joinConditionSplittingStage,
+                simplificationStage,
+                scanConversionStage,
+                projectionPruningStage,
+                projectionCleanupStage,
+                commonSubexpressionStage,
+                lateMaterialisationStage
+        };
     }
 
     @CEntryPoint(name = "Java_AethraDB_util_AethraDatabase_plan")
@@ -55,7 +165,7 @@ public class PlannerEntryPoint {
         CCharPointer cQueryPathPointer = fn.getGetStringUTFChars().call(jniEnv, rawQueryPath, (byte) 0);
         String queryPath = CTypeConversion.toJavaString(cQueryPathPointer);
 
-        final String aethraPlan = internalPlan(databasePath, queryPath);
+        final String aethraPlan = internalPlan(databasePath, queryPath, false, PlanningDeadline.unbounded(), StageTimings.create());
 
         // Return the optimised query to the caller
         try (final CTypeConversion.CCharPointerHolder holder = CTypeConversion.toCString(aethraPlan)) {
@@ -63,22 +173,216 @@ public class PlannerEntryPoint {
         }
     }
 
+    @CEntryPoint(name = "Java_AethraDB_util_AethraDatabase_planWithBudget")
+    public static JNIEnv.JString planWithBudget(JNIEnv jniEnv, Pointer clazz, IsolateThread isolateThread, JNIEnv.JString rawDatabasePath, JNIEnv.JString rawQueryPath, long planningBudgetMillis) throws Exception {
+        JNIEnv.JNINativeInterface fn = jniEnv.getFunctions();
+        CCharPointer cDatabasePathPointer = fn.getGetStringUTFChars().call(jniEnv, rawDatabasePath, (byte) 0);
+        String databasePath = CTypeConversion.toJavaString(cDatabasePathPointer);
+
+        CCharPointer cQueryPathPointer = fn.getGetStringUTFChars().call(jniEnv, rawQueryPath, (byte) 0);
+        String queryPath = CTypeConversion.toJavaString(cQueryPathPointer);
+
+        final String budgetedPlan = internalPlanWithBudget(databasePath, queryPath, TimeUnit.MILLISECONDS.toNanos(planningBudgetMillis));
+
+        // Return the optimised query to the caller, followed by the time taken by each planning stage
+        // and whether the planning budget was exceeded
+        try (final CTypeConversion.CCharPointerHolder holder = CTypeConversion.toCString(budgetedPlan)) {
+            return fn.getNewStringUTF().call(jniEnv, holder.get());
+        }
+    }
+
+    /**
+     * Plans a batch of queries that are executed concurrently against the same database, which may share
+     * their scans of the same tables. The query paths are separated by newlines.
+     */
+    @CEntryPoint(name = "Java_AethraDB_util_AethraDatabase_planBatch")
+    public static JNIEnv.JString planBatch(JNIEnv jniEnv, Pointer clazz, IsolateThread isolateThread, JNIEnv.JString rawDatabasePath, JNIEnv.JString rawQueryPaths) throws Exception {
+        JNIEnv.JNINativeInterface fn = jniEnv.getFunctions();
+        CCharPointer cDatabasePathPointer = fn.getGetStringUTFChars().call(jniEnv, rawDatabasePath, (byte) 0);
+        String databasePath = CTypeConversion.toJavaString(cDatabasePathPointer);
+
+        CCharPointer cQueryPathsPointer = fn.getGetStringUTFChars().call(jniEnv, rawQueryPaths, (byte) 0);
+        String queryPaths = CTypeConversion.toJavaString(cQueryPathsPointer);
+
+        final String batchPlan = internalPlanBatch(databasePath, queryPaths.lines().filter(line -> !line.isBlank()).toList());
+
+        // Return the optimised batch of queries to the caller
+        try (final CTypeConversion.CCharPointerHolder holder = CTypeConversion.toCString(batchPlan)) {
+            return fn.getNewStringUTF().call(jniEnv, holder.get());
+        }
+    }
+
+    @CEntryPoint(name = "Java_AethraDB_util_AethraDatabase_explain")
+    public static JNIEnv.JString explain(JNIEnv jniEnv, Pointer clazz, IsolateThread isolateThread, JNIEnv.JString rawDatabasePath, JNIEnv.JString rawQueryPath) throws Exception {
+        JNIEnv.JNINativeInterface fn = jniEnv.getFunctions();
+        CCharPointer cDatabasePathPointer = fn.getGetStringUTFChars().call(jniEnv, rawDatabasePath, (byte) 0);
+        String databasePath = CTypeConversion.toJavaString(cDatabasePathPointer);
+
+        CCharPointer cQueryPathPointer = fn.getGetStringUTFChars().call(jniEnv, rawQueryPath, (byte) 0);
+        String queryPath = CTypeConversion.toJavaString(cQueryPathPointer);
+
+        final String explainedPlan = internalPlan(databasePath, queryPath, true, PlanningDeadline.unbounded(), StageTimings.create());
+
+        // Return the description of the optimised query to the caller
+        try (final CTypeConversion.CCharPointerHolder holder = CTypeConversion.toCString(explainedPlan)) {
+            return fn.getNewStringUTF().call(jniEnv, holder.get());
+        }
+    }
+
+    @CEntryPoint(name = "Java_AethraDB_util_AethraDatabase_reportCardinalities")
+    public static void reportCardinalities(JNIEnv jniEnv, Pointer clazz, IsolateThread isolateThread, JNIEnv.JString rawFeedback) throws Exception {
+        JNIEnv.JNINativeInterface fn = jniEnv.getFunctions();
+        CCharPointer cFeedbackPointer = fn.getGetStringUTFChars().call(jniEnv, rawFeedback, (byte) 0);
+        String feedback = CTypeConversion.toJavaString(cFeedbackPointer);
+
+        internalReportCardinalities(feedback);
+    }
+
+    /**
+     * Plans a representative query against a database once and discards the result, so that the one-off
+     * costs of a fresh isolate, such as reading the catalog of the database and initialising the lazily
+     * constructed parts of the planner, are not paid by the first query that is actually executed.
+     */
+    @CEntryPoint(name = "Java_AethraDB_util_AethraDatabase_warmUp")
+    public static void warmUp(JNIEnv jniEnv, Pointer clazz, IsolateThread isolateThread, JNIEnv.JString rawDatabasePath, JNIEnv.JString rawQueryPath) throws Exception {
+        JNIEnv.JNINativeInterface fn = jniEnv.getFunctions();
+        CCharPointer cDatabasePathPointer = fn.getGetStringUTFChars().call(jniEnv, rawDatabasePath, (byte) 0);
+        String databasePath = CTypeConversion.toJavaString(cDatabasePathPointer);
+
+        CCharPointer cQueryPathPointer = fn.getGetStringUTFChars().call(jniEnv, rawQueryPath, (byte) 0);
+        String queryPath = CTypeConversion.toJavaString(cQueryPathPointer);
+
+        // Exercise both the encoder and the explainer, as either may be used by the first query
+        internalPlan(databasePath, queryPath, false, PlanningDeadline.unbounded(), StageTimings.create());
+        internalPlan(databasePath, queryPath, true, PlanningDeadline.unbounded(), StageTimings.create());
+    }
+
     @CEntryPoint(name = "Java_AethraDB_util_AethraDatabase_createIsolate", builtin=CEntryPoint.Builtin.CREATE_ISOLATE)
     public static native IsolateThread createIsolate();
 
-    private static String internalPlan(String databasePath, String queryPath) throws Exception {
+    /**
+     * Plans a workload of queries against a database and prints the resulting plans. This is used for
+     * generating the native image configuration and for training profile-guided optimisation of the
+     * native image on a representative planning workload, such as the TPC-H queries.
+     * Usage: PlannerEntryPoint {database directory} {query file or directory of .sql files}...
+     * The workload is planned {@code aethra.workload.rounds} times (default 1), and printed once.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2)
+            throw new IllegalArgumentException("Usage: PlannerEntryPoint {database directory} {query file or directory}...");
+
+        // Collect the queries of the workload
+        List<File> queryFiles = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            File queryPath = new File(args[i]);
+            File[] directoryQueries = queryPath.listFiles(file -> file.isFile() && file.getName().endsWith(".sql"));
+            if (directoryQueries == null) {
+                queryFiles.add(queryPath);
+            } else {
+                Arrays.sort(directoryQueries);
+                queryFiles.addAll(List.of(directoryQueries));
+            }
+        }
+
+        // Plan each query of the workload in each round
+        int rounds = Integer.getInteger("aethra.workload.rounds", 1);
+        for (int round = 0; round < rounds; round++) {
+            for (File queryFile : queryFiles) {
+                StageTimings stageTimings = StageTimings.create();
+                String aethraPlan = internalPlan(args[0], queryFile.getPath(), false, PlanningDeadline.unbounded(), stageTimings);
+                if (round == 0)
+                    System.out.println(queryFile.getName() + " (" + stageTimings.format() + "):\n" + aethraPlan);
+            }
+        }
+    }
+
+    static String internalPlan(String databasePath, String queryPath, boolean explain, PlanningDeadline planningDeadline,
+                                       StageTimings stageTimings) throws Exception {
         // Read the schema from disk
         JavaTypeFactoryImpl typeFactory = new JavaTypeFactoryImpl();
         CalciteSchema databaseSchema = ArrowSchemaBuilder.fromDirectory(databasePath, typeFactory);
 
+        // Plan/optimise the query
+        PlannerImpl queryPlanner = createPlanner(databaseSchema, planningDeadline, stageTimings);
+        RelNode optimisedQuery = optimise(queryPlanner, queryPath);
+
+        // Translate the query plan to the Aethra Engine Plan Format, or describe it in a human-readable form
+        // including the time taken by each planning stage
+        final String aethraPlan = explain
+                ? AethraQueryEncoder.explain(optimisedQuery) + "Stage timings (ns): " + stageTimings.format() + "\n"
+                : AethraQueryEncoder.encode(optimisedQuery);
+
+        // Close the planner
+        queryPlanner.close();
+
+        // Return the result
+        return aethraPlan;
+    }
+
+    static String internalPlanWithBudget(String databasePath, String queryPath, long planningBudgetNanos) throws Exception {
+        final PlanningDeadline planningDeadline = PlanningDeadline.after(planningBudgetNanos);
+        final StageTimings stageTimings = StageTimings.create();
+        final String aethraPlan = internalPlan(databasePath, queryPath, false, planningDeadline, stageTimings);
+
+        // Append the time taken by each planning stage and whether the planning budget was exceeded
+        // The stages skipped once the budget is exceeded are never needed for encoding the plan, so the
+        // budget flag is only ever returned together with a fully encoded plan
+        // Line form: T;{stage name}={time in nanoseconds},...\n
+        // Line form: B;{true|false}\n
+        return aethraPlan
+                + "T;" + stageTimings.format() + "\n"
+                + "B;" + planningDeadline.isExceeded() + "\n";
+    }
+
+    private static String internalPlanBatch(String databasePath, List<String> queryPaths) throws Exception {
+        // Read the schema from disk once, so that the scans of all queries refer to the same tables
+        JavaTypeFactoryImpl typeFactory = new JavaTypeFactoryImpl();
+        CalciteSchema databaseSchema = ArrowSchemaBuilder.fromDirectory(databasePath, typeFactory);
+
+        // Plan/optimise each query of the batch on its own
+        List<PlannerImpl> queryPlanners = new ArrayList<>(queryPaths.size());
+        List<RelNode> optimisedQueries = new ArrayList<>(queryPaths.size());
+        for (String queryPath : queryPaths) {
+            PlannerImpl queryPlanner = createPlanner(databaseSchema, PlanningDeadline.unbounded(), StageTimings.create());
+            queryPlanners.add(queryPlanner);
+            optimisedQueries.add(optimise(queryPlanner, queryPath));
+        }
+
+        // Translate the query plans to the Aethra Engine Plan Format, sharing the scans of the same tables
+        final String batchPlan = AethraBatchEncoder.encode(optimisedQueries);
+
+        // Close the planners
+        for (PlannerImpl queryPlanner : queryPlanners)
+            queryPlanner.close();
+
+        // Return the result
+        return batchPlan;
+    }
+
+    private static PlannerImpl createPlanner(CalciteSchema databaseSchema, PlanningDeadline planningDeadline, StageTimings stageTimings) {
         // Initialise the planner
         SqlParser.Config sqlParserConfig = SqlParser.config().withCaseSensitive(false);
+        // Keep subqueries as expressions, so that the decorrelation stage can rewrite them into joins,
+        // and keep IN-lists of any length as search arguments, which are encoded as set membership tests
+        SqlToRelConverter.Config sqlToRelConverterConfig = SqlToRelConverter.config()
+                .withExpand(false)
+                .withInSubQueryThreshold(Integer.MAX_VALUE);
+        MaterializationSource materializationSource = new MaterializationSource(databaseSchema);
         FrameworkConfig frameworkConfig = Frameworks.newConfigBuilder()
                 .parserConfig(sqlParserConfig)
+                .sqlToRelConverterConfig(sqlToRelConverterConfig)
                 .defaultSchema(databaseSchema.plus())
+                .executor(AethraRexExecutor.INSTANCE)
+                .context(Contexts.of(planningDeadline, stageTimings, materializationSource))
                 .build();
         PlannerImpl queryPlanner = new PlannerImpl(frameworkConfig);
 
+        // The materialized queries of the database are converted by the planner itself, once the materialized view rewrite stage is applied
+        materializationSource.setViewExpander(queryPlanner);
+        return queryPlanner;
+    }
+
+    private static RelNode optimise(PlannerImpl queryPlanner, String queryPath) throws Exception {
         // First, parse the query
         BufferedReader queryReader = new BufferedReader(new FileReader(queryPath));
         SqlNode parsedSqlQuery = queryPlanner.parse(queryReader);
@@ -87,18 +391,40 @@ public class PlannerEntryPoint {
         SqlNode validatedSqlQuery = queryPlanner.validate(parsedSqlQuery);
         RelNode queryRoot = queryPlanner.rel(validatedSqlQuery).project();
 
-        // Finally, plan/optimise the query
-        aethraHepPlanner.setRoot(queryRoot);
-        RelNode optimisedQuery = aethraHepPlanner.findBestExp();
+        // Use the Aethra metadata handlers, which take the cardinalities observed by the engine into account
+        AethraMetadataHandlerProvider.install(queryRoot.getCluster());
 
-        // Translate the query plan to the Aethra Engine Plan Format
-        final String aethraPlan = AethraQueryEncoder.encode(optimisedQuery);
+        // Finally, plan/optimise the query by applying each planning stage in order,
+        // where the optional stages are skipped once the planning deadline has passed
+        RelNode optimisedQuery = queryRoot;
+        for (PlannerStage planningStage : planningStages)
+            optimisedQuery = planningStage.apply(optimisedQuery);
 
-        // Close the planner
-        queryPlanner.close();
+        // Remember the filters of the plan, so that the selectivities of their conditions can be derived from the engine feedback
+        CardinalityFeedbackStore.INSTANCE.registerFilters(optimisedQuery);
 
-        // Return the result
-        return aethraPlan;
+        return optimisedQuery;
+    }
+
+    private static void internalReportCardinalities(String feedback) {
+        // Parse the cardinalities observed by the engine for the operators of an executed plan
+        // Line form: {subplan fingerprint};{observed row count}\n
+        List<CardinalityFeedbackStore.Observation> observations = new ArrayList<>();
+        for (String line : feedback.split("\n")) {
+            if (line.isBlank())
+                continue;
+
+            String[] fields = line.split(";");
+            if (fields.length != 2)
+                throw new IllegalArgumentException("Cardinality feedback lines consist of a fingerprint and row count: " + line);
+
+            observations.add(new CardinalityFeedbackStore.Observation(
+                    SubplanFingerprint.parse(fields[0]),
+                    Double.parseDouble(fields[1])));
+        }
+
+        // Store them for correcting the estimates of later plans containing the same subplans
+        CardinalityFeedbackStore.INSTANCE.record(observations);
     }
 
 }
@@ -0,0 +1,140 @@
+package calcite.metadata;
+
+import org.apache.calcite.plan.RelOptCluster;
+import org.apache.calcite.rel.metadata.BuiltInMetadata;
+import org.apache.calcite.rel.metadata.MetadataHandler;
+import org.apache.calcite.rel.metadata.MetadataHandlerProvider;
+import org.apache.calcite.rel.metadata.RelMetadataProvider;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.graalvm.nativeimage.ImageInfo;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link MetadataHandlerProvider} which serves the metadata handlers of the {@link AethraRelMetadataProvider}
+ * from plain Java classes that were generated and compiled ahead of time by the {@link MetadataHandlerGenerator}.
+ * By default, Calcite generates these handlers with Janino the first time a {@link RelMetadataQuery} is
+ * created in a fresh isolate, which is slow and relies on dynamic class loading. The precompiled handlers
+ * are plain classes of the native image instead, so that creating them carries no code generation costs.
+ * They are looked up once through reflection, as they are only compiled after the rest of the library.
+ * The native image never falls back to the Janino handlers and rejects planning if the handlers were not
+ * precompiled, while a JVM run of a build that skipped the generation step, e.g. from an IDE, does.
+ */
+public final class AethraMetadataHandlerProvider implements MetadataHandlerProvider {
+
+    /**
+     * The handler classes for which handlers are generated, which are all handlers initialised by a
+     * {@link RelMetadataQuery}, as it looks up its handlers when it is created.
+     */
+    static final List<Class<? extends MetadataHandler<?>>> HANDLER_CLASSES = List.of(
+            BuiltInMetadata.AllPredicates.Handler.class,
+            BuiltInMetadata.Collation.Handler.class,
+            BuiltInMetadata.ColumnOrigin.Handler.class,
+            BuiltInMetadata.ColumnUniqueness.Handler.class,
+            BuiltInMetadata.CumulativeCost.Handler.class,
+            BuiltInMetadata.DistinctRowCount.Handler.class,
+            BuiltInMetadata.Distribution.Handler.class,
+            BuiltInMetadata.ExplainVisibility.Handler.class,
+            BuiltInMetadata.ExpressionLineage.Handler.class,
+            BuiltInMetadata.LowerBoundCost.Handler.class,
+            BuiltInMetadata.MaxRowCount.Handler.class,
+            BuiltInMetadata.Memory.Handler.class,
+            BuiltInMetadata.MinRowCount.Handler.class,
+            BuiltInMetadata.NodeTypes.Handler.class,
+            BuiltInMetadata.NonCumulativeCost.Handler.class,
+            BuiltInMetadata.Parallelism.Handler.class,
+            BuiltInMetadata.PercentageOriginalRows.Handler.class,
+            BuiltInMetadata.PopulationSize.Handler.class,
+            BuiltInMetadata.Predicates.Handler.class,
+            BuiltInMetadata.RowCount.Handler.class,
+            BuiltInMetadata.Selectivity.Handler.class,
+            BuiltInMetadata.Size.Handler.class,
+            BuiltInMetadata.TableReferences.Handler.class,
+            BuiltInMetadata.UniqueKeys.Handler.class);
+
+    /**
+     * The package and name of the class generated by the {@link MetadataHandlerGenerator} which instantiates the handlers.
+     */
+    static final String GENERATED_PACKAGE = "calcite.metadata.generated";
+    static final String GENERATED_HANDLERS_CLASS = "GeneratedMetadataHandlers";
+
+    /**
+     * The provider of the precompiled handlers of the {@link AethraRelMetadataProvider}.
+     */
+    public static final AethraMetadataHandlerProvider INSTANCE =
+            new AethraMetadataHandlerProvider(loadGeneratedHandlers(AethraRelMetadataProvider.INSTANCE));
+
+    /**
+     * The precompiled handlers, keyed by their handler class.
+     */
+    private final Map<Class<? extends MetadataHandler<?>>, MetadataHandler<?>> handlers;
+
+    private AethraMetadataHandlerProvider(Map<Class<? extends MetadataHandler<?>>, MetadataHandler<?>> handlers) {
+        this.handlers = handlers;
+    }
+
+    /**
+     * Method which instantiates the precompiled handlers for a metadata provider.
+     * @param provider The provider whose handlers were compiled ahead of time.
+     * @return The precompiled handlers, or an empty map if they were not generated for this build.
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<Class<? extends MetadataHandler<?>>, MetadataHandler<?>> loadGeneratedHandlers(RelMetadataProvider provider) {
+        // The generated sources are compiled after the rest of the library, so they cannot be referenced directly
+        // In the native image, this lookup relies on the reflection configuration of the generated class
+        try {
+            Class<?> generatedHandlers = Class.forName(GENERATED_PACKAGE + "." + GENERATED_HANDLERS_CLASS);
+            return (Map<Class<? extends MetadataHandler<?>>, MetadataHandler<?>>)
+                    generatedHandlers.getMethod("create", RelMetadataProvider.class).invoke(null, provider);
+        } catch (ClassNotFoundException e) {
+            return Map.of();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not instantiate the precompiled metadata handlers", e);
+        }
+    }
+
+    /**
+     * Method to check whether the handlers have been compiled ahead of time, which is not the case when the
+     * library is built without running the {@link MetadataHandlerGenerator}, e.g. from an IDE.
+     * @return Whether {@code this} can serve a handler for each of the handler classes.
+     */
+    public boolean isPrecompiled() {
+        return this.handlers.keySet().containsAll(HANDLER_CLASSES);
+    }
+
+    @Override
+    public <MH extends MetadataHandler<?>> MH handler(Class<MH> handlerClass) {
+        MetadataHandler<?> handler = this.handlers.get(handlerClass);
+        if (handler == null)
+            throw new IllegalArgumentException("No precompiled metadata handler exists for " + handlerClass.getName());
+
+        return handlerClass.cast(handler);
+    }
+
+    /**
+     * Method which creates a {@link RelMetadataQuery} which uses the precompiled handlers.
+     * @return The new {@link RelMetadataQuery}.
+     */
+    public RelMetadataQuery createMetadataQuery() {
+        return new RelMetadataQuery(this);
+    }
+
+    /**
+     * Method which makes a cluster answer its metadata queries using the {@link AethraRelMetadataProvider},
+     * through the precompiled handlers if they are available. Outside the native image, the Janino-generated
+     * handlers are used otherwise.
+     * @param cluster The cluster to install the metadata handlers for.
+     * @throws IllegalStateException if the handlers were not precompiled for the native image.
+     */
+    public static void install(RelOptCluster cluster) {
+        if (!INSTANCE.isPrecompiled() && ImageInfo.inImageCode())
+            throw new IllegalStateException("The metadata handlers were not precompiled for this native image, "
+                    + "build it through Maven, which generates them in the process-classes phase");
+
+        cluster.setMetadataProvider(AethraRelMetadataProvider.INSTANCE);
+        if (INSTANCE.isPrecompiled())
+            cluster.setMetadataQuerySupplier(INSTANCE::createMetadataQuery);
+    }
+
+}
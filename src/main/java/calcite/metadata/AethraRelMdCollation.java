@@ -0,0 +1,149 @@
+package calcite.metadata;
+
+import calcite.operators.LogicalArrowTableScan;
+import com.google.common.collect.ImmutableList;
+import org.apache.calcite.rel.RelCollation;
+import org.apache.calcite.rel.RelCollationTraitDef;
+import org.apache.calcite.rel.RelCollations;
+import org.apache.calcite.rel.RelFieldCollation;
+import org.apache.calcite.rel.core.Aggregate;
+import org.apache.calcite.rel.core.Join;
+import org.apache.calcite.rel.core.JoinInfo;
+import org.apache.calcite.rel.core.JoinRelType;
+import org.apache.calcite.rel.logical.LogicalAggregate;
+import org.apache.calcite.rel.logical.LogicalJoin;
+import org.apache.calcite.rel.metadata.BuiltInMetadata;
+import org.apache.calcite.rel.metadata.MetadataDef;
+import org.apache.calcite.rel.metadata.MetadataHandler;
+import org.apache.calcite.rel.metadata.ReflectiveRelMetadataProvider;
+import org.apache.calcite.rel.metadata.RelMetadataProvider;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.util.ImmutableBitSet;
+import org.apache.calcite.util.ImmutableIntList;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collation handler for the operators of the Aethra Engine. It reports the row order of
+ * {@link LogicalArrowTableScan}s as derived from the collation of their table, and propagates row
+ * orders through the aggregates and joins that the engine evaluates on sorted inputs, i.e. streaming
+ * aggregations and merge joins.
+ */
+public class AethraRelMdCollation implements MetadataHandler<BuiltInMetadata.Collation> {
+
+    public static final RelMetadataProvider SOURCE =
+            ReflectiveRelMetadataProvider.reflectiveSource(
+                    new AethraRelMdCollation(), BuiltInMetadata.Collation.Handler.class);
+
+    protected AethraRelMdCollation() {
+
+    }
+
+    @Override public MetadataDef<BuiltInMetadata.Collation> getDef() {
+        return BuiltInMetadata.Collation.DEF;
+    }
+
+    public @Nullable ImmutableList<RelCollation> collations(LogicalArrowTableScan scan, RelMetadataQuery mq) {
+        List<RelCollation> scanCollations = scan.getTraitSet().getTraits(RelCollationTraitDef.INSTANCE);
+        return scanCollations == null ? ImmutableList.of() : ImmutableList.copyOf(scanCollations);
+    }
+
+    public @Nullable ImmutableList<RelCollation> collations(LogicalAggregate aggregate, RelMetadataQuery mq) {
+        // A streaming aggregation outputs its groups in the order of its input, a hash aggregation in no particular order
+        return streamingAggregationCollations(aggregate, mq);
+    }
+
+    public @Nullable ImmutableList<RelCollation> collations(LogicalJoin join, RelMetadataQuery mq) {
+        // A merge join outputs its rows in the order of its left input, a hash join in no particular order
+        if (!isMergeJoin(join, mq))
+            return ImmutableList.of();
+
+        List<RelCollation> leftCollations = mq.collations(join.getLeft());
+        return leftCollations == null ? ImmutableList.of() : ImmutableList.copyOf(leftCollations);
+    }
+
+    /**
+     * Method which determines the order of the groups produced by an aggregate when it is evaluated as a
+     * streaming aggregation, which is possible if its input is sorted on all its group-by columns.
+     * @param aggregate The aggregate to determine the output order for.
+     * @param mq The {@link RelMetadataQuery} to obtain the order of the input of {@code aggregate} from.
+     * @return The collations of the output of {@code aggregate}, which is empty if its input is not
+     * sorted on its group-by columns and the aggregate should thus be evaluated using a hash table.
+     */
+    public static ImmutableList<RelCollation> streamingAggregationCollations(Aggregate aggregate, RelMetadataQuery mq) {
+        ImmutableBitSet groupSet = aggregate.getGroupSet();
+        List<RelCollation> inputCollations = mq.collations(aggregate.getInput());
+        if (groupSet.isEmpty() || aggregate.getGroupType() != Aggregate.Group.SIMPLE || inputCollations == null)
+            return ImmutableList.of();
+
+        ImmutableList.Builder<RelCollation> outputCollations = ImmutableList.builder();
+        for (RelCollation inputCollation : inputCollations) {
+            // The group-by columns need to form a prefix of the input order, in any order among themselves
+            List<RelFieldCollation> outputFieldCollations = new ArrayList<>(groupSet.cardinality());
+            for (RelFieldCollation inputFieldCollation : inputCollation.getFieldCollations()) {
+                if (!groupSet.get(inputFieldCollation.getFieldIndex()))
+                    break;
+
+                outputFieldCollations.add(inputFieldCollation.withFieldIndex(groupSet.indexOf(inputFieldCollation.getFieldIndex())));
+            }
+
+            if (outputFieldCollations.size() == groupSet.cardinality())
+                outputCollations.add(RelCollations.of(outputFieldCollations));
+        }
+
+        return outputCollations.build();
+    }
+
+    /**
+     * Method which checks whether an inner equi-join can be evaluated as a merge join, which is possible
+     * if both its inputs are sorted on their join columns in the same direction.
+     * @param join The join to check.
+     * @param mq The {@link RelMetadataQuery} to obtain the order of the inputs of {@code join} from.
+     * @return Whether {@code join} can be evaluated as a merge join.
+     */
+    public static boolean isMergeJoin(Join join, RelMetadataQuery mq) {
+        if (join.getJoinType() != JoinRelType.INNER)
+            return false;
+
+        JoinInfo joinInfo = join.analyzeCondition();
+        if (!joinInfo.isEqui() || joinInfo.leftKeys.isEmpty())
+            return false;
+
+        List<RelFieldCollation.Direction> leftDirections = getSortDirections(mq.collations(join.getLeft()), joinInfo.leftKeys);
+        List<RelFieldCollation.Direction> rightDirections = getSortDirections(mq.collations(join.getRight()), joinInfo.rightKeys);
+        return leftDirections != null && leftDirections.equals(rightDirections);
+    }
+
+    /**
+     * Method which determines the directions in which an input is sorted on a list of key columns.
+     * @return The direction of each key column of a collation whose prefix consists of exactly the key
+     * columns in order, or {@code null} if there is no such collation.
+     */
+    private static @Nullable List<RelFieldCollation.Direction> getSortDirections(@Nullable List<RelCollation> collations,
+                                                                                 ImmutableIntList keys) {
+        if (collations == null)
+            return null;
+
+        for (RelCollation collation : collations) {
+            List<RelFieldCollation> fieldCollations = collation.getFieldCollations();
+            if (fieldCollations.size() < keys.size())
+                continue;
+
+            List<RelFieldCollation.Direction> directions = new ArrayList<>(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                if (fieldCollations.get(i).getFieldIndex() != keys.get(i))
+                    break;
+
+                directions.add(fieldCollations.get(i).getDirection());
+            }
+
+            if (directions.size() == keys.size())
+                return directions;
+        }
+
+        return null;
+    }
+
+}
@@ -0,0 +1,74 @@
+package calcite.metadata;
+
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.core.Aggregate;
+import org.apache.calcite.rel.core.Filter;
+import org.apache.calcite.rel.core.Join;
+import org.apache.calcite.rel.core.Project;
+import org.apache.calcite.rel.core.TableScan;
+import org.apache.calcite.rel.metadata.BuiltInMetadata;
+import org.apache.calcite.rel.metadata.ReflectiveRelMetadataProvider;
+import org.apache.calcite.rel.metadata.RelMdRowCount;
+import org.apache.calcite.rel.metadata.RelMetadataProvider;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * {@link RelMdRowCount} which prefers the row count observed by the engine for an identical subplan, as
+ * recorded in the {@link CardinalityFeedbackStore}, over the estimate derived from the statistics.
+ */
+public class AethraRelMdRowCount extends RelMdRowCount {
+
+    public static final RelMetadataProvider SOURCE =
+            ReflectiveRelMetadataProvider.reflectiveSource(
+                    new AethraRelMdRowCount(), BuiltInMetadata.RowCount.Handler.class);
+
+    protected AethraRelMdRowCount() {
+
+    }
+
+    /**
+     * Method to obtain the row count observed by the engine for a subplan.
+     * @return The observed row count of the subplan rooted at {@code rel}, or {@code null} if there is none.
+     */
+    private static @Nullable Double getObservedRowCount(RelNode rel, RelMetadataQuery mq) {
+        CardinalityFeedbackStore feedbackStore = CardinalityFeedbackStore.INSTANCE;
+        if (feedbackStore.isEmpty())
+            return null;
+
+        // Calcite assumes every operator produces at least one row
+        Double observedRowCount = feedbackStore.getObservedRowCount(SubplanFingerprint.of(rel, mq));
+        return observedRowCount == null ? null : Math.max(observedRowCount, 1d);
+    }
+
+    @Override public @Nullable Double getRowCount(RelNode rel, RelMetadataQuery mq) {
+        Double observedRowCount = getObservedRowCount(rel, mq);
+        return observedRowCount != null ? observedRowCount : super.getRowCount(rel, mq);
+    }
+
+    @Override public Double getRowCount(Filter rel, RelMetadataQuery mq) {
+        Double observedRowCount = getObservedRowCount(rel, mq);
+        return observedRowCount != null ? observedRowCount : super.getRowCount(rel, mq);
+    }
+
+    @Override public @Nullable Double getRowCount(Project rel, RelMetadataQuery mq) {
+        Double observedRowCount = getObservedRowCount(rel, mq);
+        return observedRowCount != null ? observedRowCount : super.getRowCount(rel, mq);
+    }
+
+    @Override public @Nullable Double getRowCount(Join rel, RelMetadataQuery mq) {
+        Double observedRowCount = getObservedRowCount(rel, mq);
+        return observedRowCount != null ? observedRowCount : super.getRowCount(rel, mq);
+    }
+
+    @Override public Double getRowCount(Aggregate rel, RelMetadataQuery mq) {
+        Double observedRowCount = getObservedRowCount(rel, mq);
+        return observedRowCount != null ? observedRowCount : super.getRowCount(rel, mq);
+    }
+
+    @Override public @Nullable Double getRowCount(TableScan rel, RelMetadataQuery mq) {
+        Double observedRowCount = getObservedRowCount(rel, mq);
+        return observedRowCount != null ? observedRowCount : super.getRowCount(rel, mq);
+    }
+
+}
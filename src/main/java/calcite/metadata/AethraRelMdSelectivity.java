@@ -0,0 +1,70 @@
+package calcite.metadata;
+
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.core.Aggregate;
+import org.apache.calcite.rel.core.Filter;
+import org.apache.calcite.rel.core.Join;
+import org.apache.calcite.rel.core.Project;
+import org.apache.calcite.rel.metadata.BuiltInMetadata;
+import org.apache.calcite.rel.metadata.ReflectiveRelMetadataProvider;
+import org.apache.calcite.rel.metadata.RelMdSelectivity;
+import org.apache.calcite.rel.metadata.RelMetadataProvider;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.rex.RexNode;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * {@link RelMdSelectivity} which prefers the selectivity observed by the engine for the same predicate
+ * over an identical subplan, as recorded in the {@link CardinalityFeedbackStore}, over the guessed
+ * selectivity. This corrects the estimates for correlated predicates, which Calcite assumes to be
+ * independent.
+ */
+public class AethraRelMdSelectivity extends RelMdSelectivity {
+
+    public static final RelMetadataProvider SOURCE =
+            ReflectiveRelMetadataProvider.reflectiveSource(
+                    new AethraRelMdSelectivity(), BuiltInMetadata.Selectivity.Handler.class);
+
+    protected AethraRelMdSelectivity() {
+
+    }
+
+    /**
+     * Method to obtain the selectivity observed by the engine for a predicate over a subplan.
+     * @return The observed selectivity of {@code predicate} over the subplan rooted at {@code rel},
+     * or {@code null} if there is none.
+     */
+    private static @Nullable Double getObservedSelectivity(RelNode rel, RelMetadataQuery mq, @Nullable RexNode predicate) {
+        CardinalityFeedbackStore feedbackStore = CardinalityFeedbackStore.INSTANCE;
+        if (predicate == null || predicate.isAlwaysTrue() || feedbackStore.isEmpty())
+            return null;
+
+        return feedbackStore.getObservedSelectivity(SubplanFingerprint.of(SubplanFingerprint.of(rel, mq), predicate.toString()));
+    }
+
+    @Override public @Nullable Double getSelectivity(RelNode rel, RelMetadataQuery mq, @Nullable RexNode predicate) {
+        Double observedSelectivity = getObservedSelectivity(rel, mq, predicate);
+        return observedSelectivity != null ? observedSelectivity : super.getSelectivity(rel, mq, predicate);
+    }
+
+    @Override public @Nullable Double getSelectivity(Filter rel, RelMetadataQuery mq, @Nullable RexNode predicate) {
+        Double observedSelectivity = getObservedSelectivity(rel, mq, predicate);
+        return observedSelectivity != null ? observedSelectivity : super.getSelectivity(rel, mq, predicate);
+    }
+
+    @Override public @Nullable Double getSelectivity(Project rel, RelMetadataQuery mq, @Nullable RexNode predicate) {
+        Double observedSelectivity = getObservedSelectivity(rel, mq, predicate);
+        return observedSelectivity != null ? observedSelectivity : super.getSelectivity(rel, mq, predicate);
+    }
+
+    @Override public @Nullable Double getSelectivity(Join rel, RelMetadataQuery mq, @Nullable RexNode predicate) {
+        Double observedSelectivity = getObservedSelectivity(rel, mq, predicate);
+        return observedSelectivity != null ? observedSelectivity : super.getSelectivity(rel, mq, predicate);
+    }
+
+    @Override public @Nullable Double getSelectivity(Aggregate rel, RelMetadataQuery mq, @Nullable RexNode predicate) {
+        Double observedSelectivity = getObservedSelectivity(rel, mq, predicate);
+        return observedSelectivity != null ? observedSelectivity : super.getSelectivity(rel, mq, predicate);
+    }
+
+}
@@ -0,0 +1,28 @@
+package calcite.metadata;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.calcite.rel.metadata.ChainedRelMetadataProvider;
+import org.apache.calcite.rel.metadata.DefaultRelMetadataProvider;
+import org.apache.calcite.rel.metadata.RelMetadataProvider;
+
+/**
+ * The {@link RelMetadataProvider} used by the Aethra planner. It consults the Aethra-specific
+ * handlers before falling back to the handlers of the {@link DefaultRelMetadataProvider}.
+ */
+public final class AethraRelMetadataProvider {
+
+    /**
+     * The provider chaining the Aethra-specific handlers with the default handlers.
+     */
+    public static final RelMetadataProvider INSTANCE = ChainedRelMetadataProvider.of(
+            ImmutableList.of(
+                    AethraRelMdRowCount.SOURCE,
+                    AethraRelMdSelectivity.SOURCE,
+                    AethraRelMdCollation.SOURCE,
+                    DefaultRelMetadataProvider.INSTANCE));
+
+    private AethraRelMetadataProvider() {
+
+    }
+
+}
@@ -0,0 +1,154 @@
+package calcite.metadata;
+
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.core.Filter;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Store of the cardinalities observed by the engine while executing earlier plans. Observations are
+ * keyed by the {@link SubplanFingerprint} of the operator they were made for, so that they apply to
+ * every later plan containing the same subplan. The store lives for the lifetime of the isolate and
+ * is bounded: when it is full, the least recently used observations are evicted first.
+ */
+public final class CardinalityFeedbackStore {
+
+    /**
+     * The maximum number of entries kept per kind of observation.
+     */
+    private static final int MAXIMUM_ENTRIES = 4096;
+
+    /**
+     * The store shared by all plans within the current isolate.
+     */
+    public static final CardinalityFeedbackStore INSTANCE = new CardinalityFeedbackStore(MAXIMUM_ENTRIES);
+
+    /**
+     * Record describing a single observation reported by the engine.
+     * @param fingerprint The fingerprint of the subplan rooted at the operator.
+     * @param rowCount The number of rows produced by the operator.
+     */
+    public record Observation(long fingerprint, double rowCount) {
+
+    }
+
+    /**
+     * Record describing a filter of a planned query, used for deriving the selectivity of its condition.
+     * @param inputFingerprint The fingerprint of the input of the filter.
+     * @param selectivityFingerprint The fingerprint of the filter condition over its input.
+     */
+    private record FilterDescriptor(long inputFingerprint, long selectivityFingerprint) {
+
+    }
+
+    /**
+     * The observed row counts, keyed by the fingerprint of the subplan producing them.
+     */
+    private final Map<Long, Double> observedRowCounts;
+
+    /**
+     * The observed selectivities, keyed by the fingerprint of the predicate over its input.
+     */
+    private final Map<Long, Double> observedSelectivities;
+
+    /**
+     * The filters of the planned queries, keyed by the fingerprint of the subplan rooted at the filter.
+     */
+    private final Map<Long, FilterDescriptor> filters;
+
+    private CardinalityFeedbackStore(int maximumEntries) {
+        this.observedRowCounts = boundedMap(maximumEntries);
+        this.observedSelectivities = boundedMap(maximumEntries);
+        this.filters = boundedMap(maximumEntries);
+    }
+
+    private static <K, V> Map<K, V> boundedMap(int maximumEntries) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return this.size() > maximumEntries;
+            }
+        };
+    }
+
+    /**
+     * Method which registers the filters of an optimised query plan, so that the selectivities of their
+     * conditions can be derived once the engine reports the cardinalities of the filters and their inputs.
+     * @param plan The optimised query plan to register the filters of.
+     */
+    public void registerFilters(RelNode plan) {
+        this.registerFilters(plan, plan.getCluster().getMetadataQuery());
+    }
+
+    private void registerFilters(RelNode operator, RelMetadataQuery mq) {
+        if (operator instanceof Filter filter) {
+            long inputFingerprint = SubplanFingerprint.of(filter.getInput(), mq);
+            this.registerFilter(
+                    SubplanFingerprint.of(filter, mq),
+                    inputFingerprint,
+                    SubplanFingerprint.of(inputFingerprint, filter.getCondition().toString()));
+        }
+
+        for (RelNode input : operator.getInputs())
+            this.registerFilters(input, mq);
+    }
+
+    private synchronized void registerFilter(long filterFingerprint, long inputFingerprint, long selectivityFingerprint) {
+        this.filters.put(filterFingerprint, new FilterDescriptor(inputFingerprint, selectivityFingerprint));
+    }
+
+    /**
+     * Method which records the cardinalities observed by the engine while executing a single plan.
+     * @param observations The observations for the operators of the plan.
+     */
+    public synchronized void record(List<Observation> observations) {
+        // First record the row counts, as the selectivities are derived from the row counts of the whole plan
+        for (Observation observation : observations)
+            this.observedRowCounts.put(observation.fingerprint(), observation.rowCount());
+
+        for (Observation observation : observations) {
+            FilterDescriptor filter = this.filters.get(observation.fingerprint());
+            if (filter == null)
+                continue;
+
+            Double inputRowCount = this.observedRowCounts.get(filter.inputFingerprint());
+            if (inputRowCount == null || inputRowCount <= 0)
+                continue;
+
+            double selectivity = Math.min(observation.rowCount() / inputRowCount, 1d);
+            this.observedSelectivities.put(filter.selectivityFingerprint(), selectivity);
+        }
+    }
+
+    /**
+     * Method to obtain the row count observed for a subplan.
+     * @param fingerprint The fingerprint of the subplan.
+     * @return The most recently observed row count of the subplan, or {@code null} if there is none.
+     */
+    public synchronized @Nullable Double getObservedRowCount(long fingerprint) {
+        return this.observedRowCounts.get(fingerprint);
+    }
+
+    /**
+     * Method to obtain the selectivity observed for a predicate over a subplan.
+     * @param selectivityFingerprint The fingerprint of the predicate over the subplan.
+     * @return The most recently observed selectivity of the predicate, or {@code null} if there is none.
+     */
+    public synchronized @Nullable Double getObservedSelectivity(long selectivityFingerprint) {
+        return this.observedSelectivities.get(selectivityFingerprint);
+    }
+
+    /**
+     * Method which checks whether any cardinalities have been observed at all, so that callers can skip
+     * computing fingerprints while the store is still empty.
+     * @return Whether the store contains at least one observed row count.
+     */
+    public synchronized boolean isEmpty() {
+        return this.observedRowCounts.isEmpty();
+    }
+
+}
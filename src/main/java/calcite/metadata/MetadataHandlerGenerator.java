@@ -0,0 +1,131 @@
+package calcite.metadata;
+
+import org.apache.calcite.rel.metadata.MetadataHandler;
+import org.apache.calcite.rel.metadata.RelMetadataProvider;
+import org.apache.calcite.rel.metadata.janino.RelMetadataHandlerGeneratorUtil;
+
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Build-time tool which generates the metadata handlers of the {@link AethraRelMetadataProvider} as Java
+ * sources, to be compiled into the library and served by the {@link AethraMetadataHandlerProvider}. The
+ * handlers are generated by the same code generator that Calcite otherwise invokes through Janino at run
+ * time, so they dispatch to the handler methods in exactly the same way.
+ * Usage: MetadataHandlerGenerator {output source directory}
+ */
+public final class MetadataHandlerGenerator {
+
+    /**
+     * Pattern matching the package declaration of a generated handler.
+     */
+    private static final Pattern PACKAGE_DECLARATION = Pattern.compile("^\\s*package\\s+[\\w.]+\\s*;");
+
+    private MetadataHandlerGenerator() {
+
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1)
+            throw new IllegalArgumentException("Usage: MetadataHandlerGenerator {output source directory}");
+
+        Path packageDirectory = Path.of(args[0]).resolve(AethraMetadataHandlerProvider.GENERATED_PACKAGE.replace('.', '/'));
+        Files.createDirectories(packageDirectory);
+
+        RelMetadataProvider provider = AethraRelMetadataProvider.INSTANCE;
+        StringBuilder instantiations = new StringBuilder();
+        for (Class<? extends MetadataHandler<?>> handlerClass : AethraMetadataHandlerProvider.HANDLER_CLASSES) {
+            List<MetadataHandler<?>> handlers = provider.handlers(handlerClass);
+
+            // The generated handler receives each distinct handler once, in the order of the provider chain
+            List<Integer> distinctHandlerIndices = new ArrayList<>();
+            for (int i = 0; i < handlers.size(); i++) {
+                if (handlers.indexOf(handlers.get(i)) == i)
+                    distinctHandlerIndices.add(i);
+            }
+
+            RelMetadataHandlerGeneratorUtil.HandlerNameAndGeneratedCode generatedHandler =
+                    RelMetadataHandlerGeneratorUtil.generateHandler(handlerClass, handlers);
+            String className = generatedHandler.getHandlerName().substring(generatedHandler.getHandlerName().lastIndexOf('.') + 1);
+
+            // Janino accepts binary names of nested classes, the Java compiler only their canonical names
+            String code = generatedHandler.getGeneratedCode();
+            code = code.replace(handlerClass.getName(), handlerClass.getCanonicalName());
+            for (int handlerIndex : distinctHandlerIndices)
+                code = code.replace(handlers.get(handlerIndex).getClass().getName(), getAccessibleName(handlers.get(handlerIndex)));
+
+            // Move the handler into the generated package
+            String packageDeclaration = "package " + AethraMetadataHandlerProvider.GENERATED_PACKAGE + ";";
+            code = PACKAGE_DECLARATION.matcher(code).find()
+                    ? PACKAGE_DECLARATION.matcher(code).replaceFirst(packageDeclaration)
+                    : packageDeclaration + "\n\n" + code;
+            Files.writeString(packageDirectory.resolve(className + ".java"), code, StandardCharsets.UTF_8);
+
+            // Instantiate the handler with the handlers of the provider chain
+            String handlersVariable = Character.toLowerCase(className.charAt(0)) + className.substring(1) + "Handlers";
+            instantiations.append("        List<MetadataHandler<?>> ").append(handlersVariable)
+                    .append(" = provider.handlers(").append(handlerClass.getCanonicalName()).append(".class);\n");
+            instantiations.append("        handlers.put(").append(handlerClass.getCanonicalName()).append(".class, new ")
+                    .append(className).append("(");
+            for (int i = 0; i < distinctHandlerIndices.size(); i++) {
+                int handlerIndex = distinctHandlerIndices.get(i);
+                instantiations.append(i == 0 ? "\n                " : ",\n                ")
+                        .append("(").append(getAccessibleName(handlers.get(handlerIndex))).append(") ")
+                        .append(handlersVariable).append(".get(").append(handlerIndex).append(")");
+            }
+            instantiations.append("));\n");
+        }
+
+        String registry = "package " + AethraMetadataHandlerProvider.GENERATED_PACKAGE + ";\n"
+                + "\n"
+                + "import org.apache.calcite.rel.metadata.MetadataHandler;\n"
+                + "import org.apache.calcite.rel.metadata.RelMetadataProvider;\n"
+                + "\n"
+                + "import java.util.HashMap;\n"
+                + "import java.util.List;\n"
+                + "import java.util.Map;\n"
+                + "\n"
+                + "/**\n"
+                + " * Instantiates the precompiled metadata handlers. Generated by calcite.metadata.MetadataHandlerGenerator, do not edit.\n"
+                + " */\n"
+                + "public final class " + AethraMetadataHandlerProvider.GENERATED_HANDLERS_CLASS + " {\n"
+                + "\n"
+                + "    private " + AethraMetadataHandlerProvider.GENERATED_HANDLERS_CLASS + "() {\n"
+                + "\n"
+                + "    }\n"
+                + "\n"
+                + "    public static Map<Class<? extends MetadataHandler<?>>, MetadataHandler<?>> create(RelMetadataProvider provider) {\n"
+                + "        Map<Class<? extends MetadataHandler<?>>, MetadataHandler<?>> handlers = new HashMap<>();\n"
+                + instantiations
+                + "        return handlers;\n"
+                + "    }\n"
+                + "\n"
+                + "}\n";
+        Files.writeString(packageDirectory.resolve(AethraMetadataHandlerProvider.GENERATED_HANDLERS_CLASS + ".java"),
+                registry, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Method to obtain the name by which generated code can refer to the class of a handler.
+     * @param handler The handler to obtain the class name for.
+     * @return The canonical name of the class of {@code handler}.
+     * @throws IllegalStateException if the class of {@code handler} is not accessible from other packages,
+     * in which case it should be shadowed by a public handler in the {@link AethraRelMetadataProvider}.
+     */
+    private static String getAccessibleName(MetadataHandler<?> handler) {
+        for (Class<?> handlerClass = handler.getClass(); handlerClass != null; handlerClass = handlerClass.getEnclosingClass()) {
+            if (!Modifier.isPublic(handlerClass.getModifiers()))
+                throw new IllegalStateException("The metadata handler " + handler.getClass().getName()
+                        + " cannot be precompiled, as it is not accessible from other packages");
+        }
+
+        return handler.getClass().getCanonicalName();
+    }
+
+}
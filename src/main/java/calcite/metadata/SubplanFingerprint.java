@@ -0,0 +1,164 @@
+package calcite.metadata;
+
+import org.apache.calcite.plan.hep.HepRelVertex;
+import org.apache.calcite.plan.volcano.RelSubset;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.externalize.RelWriterImpl;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.sql.SqlExplainLevel;
+import org.apache.calcite.util.Pair;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Helper class for computing fingerprints of (sub)plans. The fingerprint of a plan is a 64-bit FNV-1a
+ * hash over the type and explained attributes of each operator in the plan. Unlike the digest of an
+ * operator, it does not depend on the ids of the operators, so structurally equal subplans of
+ * different queries share the same fingerprint.
+ * The fingerprint of each operator is cached in the {@link RelMetadataQuery} of its cluster, like the
+ * metadata of the operator, so that the fingerprints of all operators of a plan are computed in a
+ * single pass over the plan and are invalidated together with the other metadata of an operator.
+ */
+public final class SubplanFingerprint {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final HexFormat HEX_FORMAT = HexFormat.of();
+
+    /**
+     * The key under which the fingerprints are cached in a {@link RelMetadataQuery}.
+     */
+    private static final Object FINGERPRINT_CACHE_KEY = new Object();
+
+    private SubplanFingerprint() {
+
+    }
+
+    /**
+     * Method which computes the fingerprint of a (sub)plan.
+     * @param plan The root of the plan to compute the fingerprint for.
+     * @return The fingerprint of {@code plan}.
+     */
+    public static long of(RelNode plan) {
+        return of(plan, plan.getCluster().getMetadataQuery());
+    }
+
+    /**
+     * Method which computes the fingerprint of a (sub)plan.
+     * @param plan The root of the plan to compute the fingerprint for.
+     * @param mq The {@link RelMetadataQuery} in which the fingerprints of the operators of {@code plan} are cached.
+     * @return The fingerprint of {@code plan}.
+     */
+    public static long of(RelNode plan, RelMetadataQuery mq) {
+        return new FingerprintWriter(mq).fingerprint(plan);
+    }
+
+    /**
+     * Method which computes the fingerprint of a predicate over the output of a (sub)plan.
+     * @param planFingerprint The fingerprint of the plan to which the predicate is applied.
+     * @param predicate The digest of the predicate.
+     * @return The fingerprint of {@code predicate} over the plan.
+     */
+    public static long of(long planFingerprint, String predicate) {
+        return hash(hash(FNV_OFFSET_BASIS, planFingerprint), predicate);
+    }
+
+    /**
+     * Method which formats a fingerprint as it appears in the Aethra Engine Plan Format.
+     * @param fingerprint The fingerprint to format.
+     * @return The fingerprint as 16 hexadecimal digits.
+     */
+    public static String format(long fingerprint) {
+        return HEX_FORMAT.toHexDigits(fingerprint);
+    }
+
+    /**
+     * Method which parses a fingerprint formatted by {@link #format(long)}.
+     * @param formattedFingerprint The formatted fingerprint.
+     * @return The fingerprint represented by {@code formattedFingerprint}.
+     */
+    public static long parse(String formattedFingerprint) {
+        if (formattedFingerprint.length() != 16)
+            throw new IllegalArgumentException("A fingerprint consists of exactly 16 hexadecimal digits: " + formattedFingerprint);
+
+        return HexFormat.fromHexDigitsToLong(formattedFingerprint);
+    }
+
+    private static long hash(long hash, String value) {
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static long hash(long hash, long value) {
+        for (int i = 0; i < Long.BYTES; i++) {
+            hash ^= (value >>> (8 * i)) & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Unwraps the planner-specific vertices that may appear as inputs of an operator during planning.
+     */
+    private static RelNode unwrap(RelNode operator) {
+        if (operator instanceof HepRelVertex hepRelVertex)
+            return hepRelVertex.getCurrentRel();
+
+        if (operator instanceof RelSubset relSubset) {
+            RelNode best = relSubset.getBest();
+            return best != null ? best : relSubset.getOriginal();
+        }
+
+        return operator;
+    }
+
+    /**
+     * {@link RelWriterImpl} which hashes the explained attributes of each operator instead of printing
+     * them, caching the fingerprints of the operators it has visited in a {@link RelMetadataQuery}.
+     */
+    private static final class FingerprintWriter extends RelWriterImpl {
+
+        private final RelMetadataQuery mq;
+
+        private FingerprintWriter(RelMetadataQuery mq) {
+            super(new PrintWriter(Writer.nullWriter()), SqlExplainLevel.DIGEST_ATTRIBUTES, false);
+            this.mq = mq;
+        }
+
+        private long fingerprint(RelNode operator) {
+            RelNode unwrappedOperator = unwrap(operator);
+            Object fingerprint = this.mq.map.get(unwrappedOperator, FINGERPRINT_CACHE_KEY);
+            if (fingerprint == null) {
+                unwrappedOperator.explain(this);
+                fingerprint = this.mq.map.get(unwrappedOperator, FINGERPRINT_CACHE_KEY);
+                assert fingerprint != null;
+            }
+            return (Long) fingerprint;
+        }
+
+        @Override protected void explain_(RelNode rel, List<Pair<String, @Nullable Object>> values) {
+            long fingerprint = hash(FNV_OFFSET_BASIS, rel.getRelTypeName());
+            for (Pair<String, @Nullable Object> value : values) {
+                fingerprint = hash(fingerprint, value.left);
+
+                if (value.right instanceof RelNode input)
+                    fingerprint = hash(fingerprint, this.fingerprint(input));
+                else
+                    fingerprint = hash(fingerprint, String.valueOf(value.right));
+            }
+
+            this.mq.map.put(rel, FINGERPRINT_CACHE_KEY, fingerprint);
+        }
+
+    }
+
+}
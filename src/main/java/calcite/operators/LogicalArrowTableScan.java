@@ -1,13 +1,18 @@
 package calcite.operators;
 
 import com.google.common.collect.ImmutableList;
+import util.arrow.ArrowTable;
 import org.apache.calcite.plan.Convention;
 import org.apache.calcite.plan.RelOptCluster;
 import org.apache.calcite.plan.RelOptCost;
 import org.apache.calcite.plan.RelOptPlanner;
 import org.apache.calcite.plan.RelOptTable;
 import org.apache.calcite.plan.RelTraitSet;
+import org.apache.calcite.rel.RelCollation;
 import org.apache.calcite.rel.RelCollationTraitDef;
+import org.apache.calcite.rel.RelCollations;
+import org.apache.calcite.rel.RelFieldCollation;
+import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.RelWriter;
 import org.apache.calcite.rel.core.TableScan;
 import org.apache.calcite.rel.hint.RelHint;
@@ -16,10 +21,14 @@ import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rel.type.RelDataTypeFactory;
 import org.apache.calcite.rel.type.RelDataTypeField;
 import org.apache.calcite.schema.Table;
+import org.apache.calcite.tools.RelBuilder;
+import org.apache.calcite.util.ImmutableBitSet;
 import org.apache.calcite.util.ImmutableIntList;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * A {@link LogicalArrowTableScan} reads all rows from a {@link RelOptTable}, while projecting
@@ -34,14 +43,31 @@ public final class LogicalArrowTableScan extends TableScan {
      */
     public final ImmutableIntList projects;
 
+    /**
+     * The partitions of a partitioned table that are read by this logical arrow table scan.
+     * Empty if the table is not partitioned.
+     */
+    public final ImmutableBitSet selectedPartitions;
+
+    /**
+     * The output columns of this logical arrow table scan which are only needed after the selective
+     * operators above the scan have been applied, and can thus be materialised late.
+     */
+    public final ImmutableBitSet lateColumns;
+
     /**
      * Creates a {@link LogicalArrowTableScan}.
      * Use {@link #create} unless you know what you are doing.
      * @param projects The projections to apply by the operator. Can be null if all columns should be projected.
+     * @param selectedPartitions The partitions of the table to read by the operator.
+     * @param lateColumns The output columns of the operator which can be materialised late.
      */
-    public LogicalArrowTableScan(RelOptCluster cluster, RelTraitSet traitSet, List<RelHint> hints, RelOptTable table, ImmutableIntList projects) {
+    public LogicalArrowTableScan(RelOptCluster cluster, RelTraitSet traitSet, List<RelHint> hints, RelOptTable table,
+                                 ImmutableIntList projects, ImmutableBitSet selectedPartitions, ImmutableBitSet lateColumns) {
         super(cluster, traitSet, hints, table);
         this.projects = projects;
+        this.selectedPartitions = selectedPartitions;
+        this.lateColumns = lateColumns;
     }
 
     /**
@@ -56,16 +82,64 @@ public final class LogicalArrowTableScan extends TableScan {
      */
     public static LogicalArrowTableScan create(RelOptCluster cluster, RelOptTable relOptTable,
                                                List<RelHint> hints, List<Integer> projects) {
+        final ArrowTable arrowTable = relOptTable.unwrap(ArrowTable.class);
+        final ImmutableBitSet allPartitions = arrowTable != null ? arrowTable.getAllPartitions() : ImmutableBitSet.of();
+        return create(cluster, relOptTable, hints, projects, allPartitions);
+    }
+
+    /**
+     * Creates a {@link LogicalArrowTableScan} which only reads a selection of the partitions of its table.
+     */
+    public static LogicalArrowTableScan create(RelOptCluster cluster, RelOptTable relOptTable,
+                                               List<RelHint> hints, List<Integer> projects,
+                                               ImmutableBitSet selectedPartitions) {
         final Table table = relOptTable.unwrap(Table.class);
+        final ImmutableIntList projectList = ImmutableIntList.copyOf(projects);
         final RelTraitSet traitSet =
                 cluster.traitSetOf(Convention.NONE)
                         .replaceIfs(RelCollationTraitDef.INSTANCE, () -> {
                             if (table != null) {
-                                return table.getStatistic().getCollations();
+                                final List<RelCollation> tableCollations = table.getStatistic().getCollations();
+                                if (tableCollations != null) {
+                                    return projectCollations(tableCollations, projectList);
+                                }
                             }
                             return ImmutableList.of();
                         });
-        return new LogicalArrowTableScan(cluster, traitSet, hints, relOptTable, ImmutableIntList.copyOf(projects));
+        return new LogicalArrowTableScan(cluster, traitSet, hints, relOptTable, projectList, selectedPartitions, ImmutableBitSet.of());
+    }
+
+    /**
+     * Creates a copy of this {@link LogicalArrowTableScan} which materialises a given set of its output columns late.
+     */
+    public LogicalArrowTableScan withLateColumns(ImmutableBitSet lateColumns) {
+        if (lateColumns.equals(this.lateColumns)) {
+            return this;
+        }
+        return new LogicalArrowTableScan(getCluster(), getTraitSet(), getHints(), getTable(), projects, selectedPartitions, lateColumns);
+    }
+
+    /**
+     * Maps collations over the columns of a table onto the output of a scan projecting {@code projects}.
+     * Each collation is cut off at its first column which is not projected by the scan.
+     */
+    private static List<RelCollation> projectCollations(List<RelCollation> tableCollations, ImmutableIntList projects) {
+        final ImmutableList.Builder<RelCollation> projectedCollations = ImmutableList.builder();
+        for (RelCollation tableCollation : tableCollations) {
+            final List<RelFieldCollation> projectedFieldCollations = new ArrayList<>();
+            for (RelFieldCollation fieldCollation : tableCollation.getFieldCollations()) {
+                final int projectedIndex = projects.indexOf(fieldCollation.getFieldIndex());
+                if (projectedIndex < 0) {
+                    break;
+                }
+                projectedFieldCollations.add(fieldCollation.withFieldIndex(projectedIndex));
+            }
+
+            if (!projectedFieldCollations.isEmpty()) {
+                projectedCollations.add(RelCollations.of(projectedFieldCollations));
+            }
+        }
+        return projectedCollations.build();
     }
 
     @Override public RelDataType deriveRowType() {
@@ -79,9 +153,43 @@ public final class LogicalArrowTableScan extends TableScan {
         return builder.build();
     }
 
+    /**
+     * Narrows the projection of this scan to the columns in {@code fieldsUsed}, so that field trimming
+     * results in a scan that only reads the required columns instead of a project over a full scan.
+     */
+    @Override public RelNode project(ImmutableBitSet fieldsUsed, Set<RelDataTypeField> extraFields,
+                                     RelBuilder relBuilder) {
+        if (!extraFields.isEmpty())
+            return super.project(fieldsUsed, extraFields, relBuilder);
+
+        // Some parts of the system can't handle rows with zero fields, so keep the first column
+        // in case no column is used at all
+        final List<Integer> newProjects = new ArrayList<>(Math.max(fieldsUsed.cardinality(), 1));
+        if (fieldsUsed.isEmpty())
+            newProjects.add(projects.get(0));
+        for (int field : fieldsUsed)
+            newProjects.add(projects.get(field));
+
+        return create(getCluster(), getTable(), getHints(), newProjects, selectedPartitions);
+    }
+
     @Override public RelWriter explainTerms(RelWriter pw) {
+        final ArrowTable arrowTable = table.unwrap(ArrowTable.class);
         return super.explainTerms(pw)
-                .itemIf("projects", projects, !projects.equals(identity()));
+                .itemIf("projects", projects, !projects.equals(identity()))
+                .itemIf("partitions", selectedPartitions,
+                        arrowTable != null && !selectedPartitions.equals(arrowTable.getAllPartitions()))
+                .itemIf("late", lateColumns, !lateColumns.isEmpty());
+    }
+
+    @Override public double estimateRowCount(RelMetadataQuery mq) {
+        // Only the selected partitions of a partitioned table are read
+        final double rowCount = super.estimateRowCount(mq);
+        final ArrowTable arrowTable = table.unwrap(ArrowTable.class);
+        if (arrowTable == null || !arrowTable.isPartitioned())
+            return rowCount;
+
+        return rowCount * selectedPartitions.cardinality() / arrowTable.getPartitions().size();
     }
 
     @Override public @Nullable RelOptCost computeSelfCost(RelOptPlanner planner,
@@ -0,0 +1,336 @@
+package calcite.planner;
+
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.logical.LogicalFilter;
+import org.apache.calcite.rel.logical.LogicalProject;
+import org.apache.calcite.rel.type.RelDataTypeField;
+import org.apache.calcite.rex.RexBuilder;
+import org.apache.calcite.rex.RexCall;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexLocalRef;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexProgram;
+import org.apache.calcite.rex.RexProgramBuilder;
+import org.apache.calcite.rex.RexShuttle;
+import org.apache.calcite.rex.RexUtil;
+import org.apache.calcite.sql.type.SqlTypeName;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link CommonSubexpressionStage} makes the engine evaluate each subexpression that is shared by the
+ * expressions of a projection, or of a projection and the filter directly below it, only once per row.
+ * For each such project-filter chain, a {@link RexProgram} is built, which represents every distinct
+ * subexpression once. The subexpressions that are used more than once are computed as additional
+ * columns by an intermediate projection, after which the original expressions refer to these columns.
+ * Only subexpressions that the original expressions evaluate for every row are computed, rather than
+ * those guarded by a CASE, COALESCE, AND or OR, which could fail on rows for which they are never evaluated.
+ * Subexpressions evaluated by the filter are computed below the filter, the others above it, so that they
+ * are only computed for the rows passing the filter. A shared subexpression containing other shared
+ * subexpressions is computed by a projection on top of the one computing those, referring to their columns.
+ * For example, the projections {@code *($5, -(1, $6))} and {@code *(*($5, -(1, $6)), +(1, $7))} become
+ * {@code $16} and {@code *($16, +(1, $7))} over a projection which computes {@code *($5, -(1, $6))} as $16.
+ * Once the {@link PlanningDeadline} of the plan passes, the remaining projections are left unchanged.
+ */
+public final class CommonSubexpressionStage extends PlannerStage {
+
+    /**
+     * Constructs a {@link CommonSubexpressionStage}.
+     * @param name The name of the stage.
+     */
+    public CommonSubexpressionStage(String name) {
+        super(name);
+    }
+
+    @Override
+    protected RelNode run(RelNode plan) {
+        // Handle the inputs first and only copy the operator if any of them changed
+        List<RelNode> inputs = plan.getInputs();
+        List<RelNode> newInputs = new ArrayList<>(inputs.size());
+        boolean inputsChanged = false;
+        for (RelNode input : inputs) {
+            RelNode newInput = this.run(input);
+            newInputs.add(newInput);
+            inputsChanged |= newInput != input;
+        }
+
+        RelNode operator = inputsChanged ? plan.copy(plan.getTraitSet(), newInputs) : plan;
+        if (!(operator instanceof LogicalProject project))
+            return operator;
+
+        // Leave the remaining projections unchanged once the deadline has passed, keeping those already rewritten
+        PlanningDeadline deadline = PlanningDeadline.of(project);
+        if (deadline.hasPassed()) {
+            deadline.markExceeded();
+            return project;
+        }
+
+        return eliminateCommonSubexpressions(project);
+    }
+
+    /**
+     * Method which factors the shared subexpressions out of a projection and the filter directly below it.
+     * @param project The projection to factor the shared subexpressions out of.
+     * @return The equivalent chain of operators evaluating each shared subexpression once, or {@code project}
+     * itself if it does not contain any shared subexpressions.
+     */
+    private static RelNode eliminateCommonSubexpressions(LogicalProject project) {
+        LogicalFilter filter = project.getInput() instanceof LogicalFilter inputFilter ? inputFilter : null;
+        RelNode chainInput = filter == null ? project.getInput() : filter.getInput();
+        RexBuilder rexBuilder = project.getCluster().getRexBuilder();
+
+        // Represent each distinct subexpression of the chain once
+        RexProgramBuilder programBuilder = new RexProgramBuilder(chainInput.getRowType(), rexBuilder);
+        for (RelDataTypeField field : project.getRowType().getFieldList())
+            programBuilder.addProject(project.getProjects().get(field.getIndex()), field.getName());
+        if (filter != null)
+            programBuilder.addCondition(filter.getCondition());
+        RexProgram program = programBuilder.getProgram(false);
+
+        Set<Integer> sharedExpressions = getSharedExpressions(program);
+        if (sharedExpressions.isEmpty())
+            return project;
+
+        // Split the shared subexpressions into those evaluated by the filter for every input row, and those evaluated
+        // by the projection for every row passing the filter, while the other ones are not computed as columns
+        RexLocalRef condition = program.getCondition();
+        Set<Integer> filterExpressions = condition == null
+                ? new LinkedHashSet<>()
+                : retainUnconditionalExpressions(program, List.of(condition), sharedExpressions);
+
+        Set<Integer> projectExpressions = retainUnconditionalExpressions(program, program.getProjectList(), sharedExpressions);
+        projectExpressions.removeAll(filterExpressions);
+
+        if (filterExpressions.isEmpty() && projectExpressions.isEmpty())
+            return project;
+
+        // Compute the shared subexpressions of the filter below it
+        Map<Integer, Integer> computedColumns = new HashMap<>();
+        RelNode newInput = computeExpressions(chainInput, program, filterExpressions, computedColumns);
+        if (filter != null)
+            newInput = filter.copy(filter.getTraitSet(), newInput, expand(program, condition.getIndex(), computedColumns, rexBuilder));
+
+        // Compute the remaining shared subexpressions above the filter and refer to them in the projection
+        newInput = computeExpressions(newInput, program, projectExpressions, computedColumns);
+        List<RexNode> newProjects = new ArrayList<>(program.getProjectList().size());
+        for (RexLocalRef projectRef : program.getProjectList())
+            newProjects.add(expand(program, projectRef.getIndex(), computedColumns, rexBuilder));
+
+        return project.copy(project.getTraitSet(), newInput, newProjects, project.getRowType());
+    }
+
+    /**
+     * Method which determines the subexpressions of a program that are worth computing only once.
+     * @param program The program to determine the shared subexpressions of.
+     * @return The indices of the calls in the expression list of {@code program} which are used more than
+     * once by the other expressions, projections and condition of the program.
+     */
+    private static Set<Integer> getSharedExpressions(RexProgram program) {
+        List<RexNode> expressions = program.getExprList();
+        int[] useCounts = new int[expressions.size()];
+
+        RexShuttle useCounter = new RexShuttle() {
+            @Override public RexNode visitLocalRef(RexLocalRef localRef) {
+                useCounts[localRef.getIndex()]++;
+                return localRef;
+            }
+        };
+        for (RexNode expression : expressions)
+            expression.accept(useCounter);
+        for (RexLocalRef projectRef : program.getProjectList())
+            projectRef.accept(useCounter);
+        if (program.getCondition() != null)
+            program.getCondition().accept(useCounter);
+
+        // Only deterministic non-boolean values are computed as columns, as the engine evaluates predicates in filters
+        Set<Integer> sharedExpressions = new LinkedHashSet<>();
+        for (int i = program.getInputRowType().getFieldCount(); i < expressions.size(); i++) {
+            RexNode expression = expressions.get(i);
+            if (useCounts[i] < 2 || !(expression instanceof RexCall) || expression.getType().getSqlTypeName() == SqlTypeName.BOOLEAN)
+                continue;
+
+            RexNode expandedExpression = program.expandLocalRef(new RexLocalRef(i, expression.getType()));
+            if (RexUtil.isDeterministic(expandedExpression))
+                sharedExpressions.add(i);
+        }
+
+        return sharedExpressions;
+    }
+
+    /**
+     * Method which selects the subexpressions of a program that are evaluated whenever a set of its expressions
+     * is evaluated. Only the first operand of a CASE, COALESCE, AND or OR is evaluated regardless of the values
+     * of the other operands, so the subexpressions only reached through the other operands are left out. Computing
+     * those for every row could fail where the original expression does not, e.g. for a division or cast guarded
+     * by a check on its operand.
+     * @param program The program containing the expressions.
+     * @param roots The expressions of the program from which the subexpressions are reached.
+     * @param expressions The indices of the subexpressions to select from.
+     * @return The indices in {@code expressions} which are evaluated whenever {@code roots} are, in the same order.
+     */
+    private static Set<Integer> retainUnconditionalExpressions(RexProgram program, List<RexLocalRef> roots,
+                                                               Set<Integer> expressions) {
+        Set<Integer> unconditionalExpressions = new HashSet<>();
+        for (RexLocalRef root : roots)
+            collectUnconditionalExpressions(program, root.getIndex(), unconditionalExpressions);
+
+        Set<Integer> retainedExpressions = new LinkedHashSet<>(expressions);
+        retainedExpressions.retainAll(unconditionalExpressions);
+        return retainedExpressions;
+    }
+
+    /**
+     * Method which collects an expression of a program and the subexpressions evaluated whenever it is evaluated.
+     * @param program The program containing the expression.
+     * @param expressionIndex The index of the expression in the expression list of {@code program}.
+     * @param unconditionalExpressions The set to add the expression and its unconditional subexpressions to.
+     */
+    private static void collectUnconditionalExpressions(RexProgram program, int expressionIndex,
+                                                        Set<Integer> unconditionalExpressions) {
+        if (!unconditionalExpressions.add(expressionIndex))
+            return;
+
+        if (!(program.getExprList().get(expressionIndex) instanceof RexCall call))
+            return;
+
+        boolean isConditional = switch (call.getKind()) {
+            case CASE, COALESCE, AND, OR -> true;
+            default -> false;
+        };
+        List<RexNode> operands = isConditional ? call.getOperands().subList(0, 1) : call.getOperands();
+
+        RexShuttle collector = new RexShuttle() {
+            @Override public RexNode visitLocalRef(RexLocalRef localRef) {
+                collectUnconditionalExpressions(program, localRef.getIndex(), unconditionalExpressions);
+                return localRef;
+            }
+        };
+        for (RexNode operand : operands)
+            operand.accept(collector);
+    }
+
+    /**
+     * Method which adds the projections computing a set of subexpressions as additional columns to an operator.
+     * @param input The operator to compute the subexpressions over, whose columns are passed through.
+     * @param program The program containing the subexpressions.
+     * @param expressions The indices of the subexpressions to compute.
+     * @param computedColumns The columns of {@code input} holding previously computed subexpressions,
+     *                        which is extended with the columns of {@code expressions}.
+     * @return The projections computing {@code expressions}, or {@code input} if there are none.
+     */
+    private static RelNode computeExpressions(RelNode input, RexProgram program, Set<Integer> expressions,
+                                              Map<Integer, Integer> computedColumns) {
+        // A projection cannot refer to its own outputs, so the subexpressions containing other subexpressions
+        // to compute are computed by a later projection, which refers to the columns of the contained ones
+        Map<Integer, Integer> depths = new HashMap<>();
+        List<Set<Integer>> layers = new ArrayList<>();
+        for (int expressionIndex : expressions) {
+            int depth = getDepth(program, expressionIndex, expressions, depths);
+            while (layers.size() < depth)
+                layers.add(new LinkedHashSet<>());
+            layers.get(depth - 1).add(expressionIndex);
+        }
+
+        RelNode newInput = input;
+        for (Set<Integer> layer : layers)
+            newInput = computeLayer(newInput, program, layer, computedColumns);
+
+        return newInput;
+    }
+
+    /**
+     * Method which determines the number of projections needed for computing a subexpression of a program.
+     * @param program The program containing the subexpression.
+     * @param expressionIndex The index of the subexpression in the expression list of {@code program}.
+     * @param expressions The indices of the subexpressions to compute.
+     * @param depths The depths determined so far, which is extended with the depth of the subexpression.
+     * @return One more than the largest depth of the subexpressions in {@code expressions} contained in the
+     * subexpression, i.e. 1 if it does not contain any of them.
+     */
+    private static int getDepth(RexProgram program, int expressionIndex, Set<Integer> expressions, Map<Integer, Integer> depths) {
+        Integer depth = depths.get(expressionIndex);
+        if (depth != null)
+            return depth;
+
+        int[] containedDepth = { 0 };
+        program.getExprList().get(expressionIndex).accept(new RexShuttle() {
+            @Override public RexNode visitLocalRef(RexLocalRef localRef) {
+                // Other subexpressions are expanded in place, so look for the subexpressions to compute inside them
+                if (expressions.contains(localRef.getIndex()))
+                    containedDepth[0] = Math.max(containedDepth[0], getDepth(program, localRef.getIndex(), expressions, depths));
+                else
+                    program.getExprList().get(localRef.getIndex()).accept(this);
+                return localRef;
+            }
+        });
+
+        depths.put(expressionIndex, containedDepth[0] + 1);
+        return containedDepth[0] + 1;
+    }
+
+    /**
+     * Method which adds a projection computing a set of independent subexpressions as additional columns to an operator.
+     * @param input The operator to compute the subexpressions over, whose columns are passed through.
+     * @param program The program containing the subexpressions.
+     * @param expressions The indices of the subexpressions to compute, none of which contains another one.
+     * @param computedColumns The columns of {@code input} holding previously computed subexpressions,
+     *                        which is extended with the columns of {@code expressions}.
+     * @return The projection computing {@code expressions}.
+     */
+    private static RelNode computeLayer(RelNode input, RexProgram program, Set<Integer> expressions,
+                                        Map<Integer, Integer> computedColumns) {
+        RexBuilder rexBuilder = input.getCluster().getRexBuilder();
+        List<RexNode> projects = new ArrayList<>(input.getRowType().getFieldCount() + expressions.size());
+        List<@Nullable String> fieldNames = new ArrayList<>(input.getRowType().getFieldCount() + expressions.size());
+        for (RelDataTypeField field : input.getRowType().getFieldList()) {
+            projects.add(rexBuilder.makeInputRef(input, field.getIndex()));
+            fieldNames.add(field.getName());
+        }
+
+        // The subexpressions are computed in terms of the input columns, including those computed by earlier projections
+        Map<Integer, Integer> newComputedColumns = new HashMap<>();
+        for (int expressionIndex : expressions) {
+            projects.add(expand(program, expressionIndex, computedColumns, rexBuilder));
+            fieldNames.add(null);
+            newComputedColumns.put(expressionIndex, projects.size() - 1);
+        }
+
+        computedColumns.putAll(newComputedColumns);
+        return LogicalProject.create(input, List.of(), projects, fieldNames);
+    }
+
+    /**
+     * Method which expands an expression of a program into an expression over the columns of an operator.
+     * @param program The program containing the expression.
+     * @param expressionIndex The index of the expression in the expression list of {@code program}.
+     * @param computedColumns The columns of the operator holding computed subexpressions of {@code program},
+     *                        which are referred to instead of being expanded. The input columns of the program
+     *                        keep their position.
+     * @param rexBuilder The {@link RexBuilder} to construct the column references with.
+     * @return The expanded expression.
+     */
+    private static RexNode expand(RexProgram program, int expressionIndex, Map<Integer, Integer> computedColumns,
+                                  RexBuilder rexBuilder) {
+        RexNode expression = program.getExprList().get(expressionIndex);
+        Integer computedColumn = computedColumns.get(expressionIndex);
+        if (computedColumn != null)
+            return rexBuilder.makeInputRef(expression.getType(), computedColumn);
+
+        if (expression instanceof RexInputRef)
+            return expression;
+
+        return expression.accept(new RexShuttle() {
+            @Override public RexNode visitLocalRef(RexLocalRef localRef) {
+                return expand(program, localRef.getIndex(), computedColumns, rexBuilder);
+            }
+        });
+    }
+
+}
@@ -0,0 +1,89 @@
+package calcite.planner;
+
+import calcite.rules.JoinConditionSplitRule;
+import org.apache.calcite.plan.RelOptUtil;
+import org.apache.calcite.plan.hep.HepMatchOrder;
+import org.apache.calcite.plan.hep.HepPlanner;
+import org.apache.calcite.plan.hep.HepProgram;
+import org.apache.calcite.plan.hep.HepProgramBuilder;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.core.Correlate;
+import org.apache.calcite.rel.core.RelFactories;
+import org.apache.calcite.rel.rules.SubQueryRemoveRule;
+import org.apache.calcite.sql.SqlExplainLevel;
+import org.apache.calcite.sql2rel.RelDecorrelator;
+import org.apache.calcite.tools.RelBuilder;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A {@link DecorrelationStage} removes the subqueries from a query plan and decorrelates the result.
+ * Subqueries in filters, projections and join conditions are first rewritten into correlates, after
+ * which the {@link RelDecorrelator} turns the correlates into regular joins. Correlated aggregates,
+ * as found in TPC-H Q2, Q17 and Q20, thereby become aggregates over the inner input grouped by the
+ * correlation columns, which are joined to the outer input. Such joins are on all correlation columns
+ * and, once the filter on the aggregate is pushed into them, on the aggregate as well, so their conditions
+ * are split into a single column equality and a filter by the {@link JoinConditionSplitRule} later on.
+ * The Aethra Engine cannot evaluate correlates, so any correlate that could not be removed causes the
+ * query to be rejected, and the stage is always applied.
+ */
+public final class DecorrelationStage extends PlannerStage {
+
+    /**
+     * The program which rewrites the subqueries of a plan into correlates, which is bounded to a number
+     * of matches per rule far beyond the number of subqueries of any realistic query.
+     */
+    private static final HepProgram SUBQUERY_REMOVAL_PROGRAM = new HepProgramBuilder()
+            .addMatchOrder(HepMatchOrder.BOTTOM_UP)
+            .addMatchLimit(1024)
+            .addRuleInstance(SubQueryRemoveRule.Config.FILTER.toRule())
+            .addRuleInstance(SubQueryRemoveRule.Config.PROJECT.toRule())
+            .addRuleInstance(SubQueryRemoveRule.Config.JOIN.toRule())
+            .build();
+
+    /**
+     * Constructs a {@link DecorrelationStage}.
+     * @param name The name of the stage.
+     */
+    public DecorrelationStage(String name) {
+        super(name, true);
+    }
+
+    @Override
+    protected RelNode run(RelNode plan) {
+        // Rewrite the subqueries into correlates
+        HepPlanner planner = new HepPlanner(SUBQUERY_REMOVAL_PROGRAM);
+        planner.setExecutor(plan.getCluster().getPlanner().getExecutor());
+        planner.setRoot(plan);
+        RelNode correlatedPlan = planner.findBestExp();
+
+        // Turn the correlates into joins
+        RelBuilder relBuilder = RelFactories.LOGICAL_BUILDER.create(correlatedPlan.getCluster(), null);
+        RelNode decorrelatedPlan = RelDecorrelator.decorrelateQuery(correlatedPlan, relBuilder);
+
+        Correlate remainingCorrelate = findCorrelate(decorrelatedPlan);
+        if (remainingCorrelate != null)
+            throw new UnsupportedOperationException("The Aethra Engine does not support correlated subqueries that "
+                    + "cannot be decorrelated:\n" + RelOptUtil.toString(remainingCorrelate, SqlExplainLevel.NO_ATTRIBUTES));
+
+        return decorrelatedPlan;
+    }
+
+    /**
+     * Method which finds a {@link Correlate} in a (sub)plan.
+     * @param operator The root of the (sub)plan to search.
+     * @return A {@link Correlate} within the (sub)plan, or {@code null} if it does not contain any.
+     */
+    private static @Nullable Correlate findCorrelate(RelNode operator) {
+        if (operator instanceof Correlate correlate)
+            return correlate;
+
+        for (RelNode input : operator.getInputs()) {
+            Correlate correlate = findCorrelate(input);
+            if (correlate != null)
+                return correlate;
+        }
+
+        return null;
+    }
+
+}
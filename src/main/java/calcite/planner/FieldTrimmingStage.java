@@ -0,0 +1,32 @@
+package calcite.planner;
+
+import calcite.operators.LogicalArrowTableScan;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.core.RelFactories;
+import org.apache.calcite.sql2rel.RelFieldTrimmer;
+import org.apache.calcite.tools.RelBuilder;
+
+/**
+ * A {@link FieldTrimmingStage} removes all columns that are not needed for computing the result of a
+ * query plan in a single pass over the whole plan using a {@link RelFieldTrimmer}. The minimal column
+ * set of each {@link LogicalArrowTableScan} is pushed into the scan itself, regardless of the
+ * operators between the scan and the operators using its columns.
+ */
+public final class FieldTrimmingStage extends PlannerStage {
+
+    /**
+     * Constructs a {@link FieldTrimmingStage}.
+     * @param name The name of the stage.
+     */
+    public FieldTrimmingStage(String name) {
+        super(name);
+    }
+
+    @Override
+    protected RelNode run(RelNode plan) {
+        RelBuilder relBuilder = RelFactories.LOGICAL_BUILDER.create(plan.getCluster(), null);
+        RelFieldTrimmer fieldTrimmer = new RelFieldTrimmer(null, relBuilder);
+        return fieldTrimmer.trim(plan);
+    }
+
+}
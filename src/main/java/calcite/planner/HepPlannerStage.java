@@ -0,0 +1,224 @@
+package calcite.planner;
+
+import org.apache.calcite.plan.RelOptListener;
+import org.apache.calcite.plan.RelOptRule;
+import org.apache.calcite.plan.hep.HepMatchOrder;
+import org.apache.calcite.plan.hep.HepPlanner;
+import org.apache.calcite.plan.hep.HepProgram;
+import org.apache.calcite.plan.hep.HepProgramBuilder;
+import org.apache.calcite.rel.RelNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link HepPlannerStage} is a {@link PlannerStage} which applies a {@link HepProgram} with an
+ * explicit {@link HepMatchOrder} and match limit to a query plan. An optional stage applies its program
+ * in chunks of at most {@link #CHUNK_MATCH_LIMIT} matches per rule and checks the {@link PlanningDeadline}
+ * of the plan between chunks. Once the deadline has passed, the plan resulting from the chunks applied so
+ * far is returned, keeping the rewrites already made. A required stage applies its program at once.
+ */
+public final class HepPlannerStage extends PlannerStage {
+
+    /**
+     * The maximum number of matches per rule in each chunk of an optional stage.
+     */
+    private static final int CHUNK_MATCH_LIMIT = 32;
+
+    /**
+     * The program applied by this stage.
+     */
+    private final HepProgram program;
+
+    /**
+     * The program applied in each chunk of this stage, if it is optional.
+     */
+    private final HepProgram chunkProgram;
+
+    /**
+     * The maximum number of chunks of this stage, such that the stage does not exceed its match limit.
+     */
+    private final int maxChunkCount;
+
+    /**
+     * Creates a {@link HepPlannerStage}.
+     * Use {@link #builder} unless you know what you are doing.
+     * @param name The name of the stage.
+     * @param program The program to apply in the stage.
+     * @param chunkProgram The program to apply in each chunk of the stage if it is optional.
+     * @param maxChunkCount The maximum number of chunks of the stage if it is optional.
+     * @param required Whether the stage needs to be applied regardless of the deadline of the plan.
+     */
+    private HepPlannerStage(String name, HepProgram program, HepProgram chunkProgram, int maxChunkCount, boolean required) {
+        super(name, required);
+        this.program = program;
+        this.chunkProgram = chunkProgram;
+        this.maxChunkCount = maxChunkCount;
+    }
+
+    @Override
+    protected RelNode run(RelNode plan) {
+        if (this.isRequired())
+            return createPlanner(this.program, plan).findBestExp();
+
+        // Apply the chunks until one of them no longer changes the plan, or the match limit of the stage is reached,
+        // returning the plan resulting from the chunks applied so far once the deadline has passed
+        PlanningDeadline deadline = PlanningDeadline.of(plan);
+        RelNode currentPlan = plan;
+        for (int chunk = 0; chunk < this.maxChunkCount; chunk++) {
+            HepPlanner planner = createPlanner(this.chunkProgram, currentPlan);
+            ProductionListener productionListener = new ProductionListener();
+            planner.addListener(productionListener);
+            currentPlan = planner.findBestExp();
+
+            if (!productionListener.hasProduced())
+                break;
+
+            if (deadline.hasPassed()) {
+                deadline.markExceeded();
+                break;
+            }
+        }
+
+        return currentPlan;
+    }
+
+    /**
+     * Method which creates a {@link HepPlanner} for applying a program to a plan.
+     */
+    private static HepPlanner createPlanner(HepProgram program, RelNode plan) {
+        // Use a fresh planner for each application, so that the vertices of earlier plans do not
+        // accumulate in the planner graph and slow down later matching
+        HepPlanner planner = new HepPlanner(program);
+        planner.setExecutor(plan.getCluster().getPlanner().getExecutor());
+        planner.setRoot(plan);
+        return planner;
+    }
+
+    /**
+     * {@link RelOptListener} which records whether any rule produced a new operator.
+     */
+    private static final class ProductionListener implements RelOptListener {
+
+        private boolean produced = false;
+
+        private boolean hasProduced() {
+            return this.produced;
+        }
+
+        @Override public void ruleAttempted(RuleAttemptedEvent event) {
+
+        }
+
+        @Override public void relEquivalenceFound(RelEquivalenceEvent event) {
+
+        }
+
+        @Override public void ruleProductionSucceeded(RuleProductionEvent event) {
+            this.produced = true;
+        }
+
+        @Override public void relDiscarded(RelDiscardedEvent event) {
+
+        }
+
+        @Override public void relChosen(RelChosenEvent event) {
+
+        }
+
+    }
+
+    /**
+     * Creates a {@link Builder} for a {@link HepPlannerStage}.
+     * @param name The name of the stage to build.
+     * @return A builder for the stage.
+     */
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    /**
+     * Builder for {@link HepPlannerStage} instances.
+     */
+    public static final class Builder {
+
+        private final String name;
+        private HepMatchOrder matchOrder = HepMatchOrder.DEPTH_FIRST;
+        private int matchLimit = HepProgram.MATCH_UNTIL_FIXPOINT;
+        private final List<RelOptRule> rules = new ArrayList<>();
+        private boolean required = false;
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Sets the order in which the rules of the stage are matched against the plan.
+         */
+        public Builder matchOrder(HepMatchOrder matchOrder) {
+            this.matchOrder = matchOrder;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of matches of each rule of the stage.
+         * Use {@link HepProgram#MATCH_UNTIL_FIXPOINT} to apply the rules of an optional stage until a
+         * fixpoint is reached, while a required stage needs an explicit bound.
+         */
+        public Builder matchLimit(int matchLimit) {
+            if (matchLimit <= 0)
+                throw new IllegalArgumentException("A planner stage requires a positive match limit");
+
+            this.matchLimit = matchLimit;
+            return this;
+        }
+
+        /**
+         * Adds a rule to the stage. Rules are applied in the order in which they are added, each
+         * until the match limit of the stage is hit or no more matches can be found.
+         */
+        public Builder addRuleInstance(RelOptRule rule) {
+            this.rules.add(rule);
+            return this;
+        }
+
+        /**
+         * Marks the stage as required, so that it is always applied until its match limit, regardless
+         * of the deadline of the plan. The match limit of a required stage must be set explicitly.
+         */
+        public Builder required() {
+            this.required = true;
+            return this;
+        }
+
+        /**
+         * Builds the {@link HepPlannerStage}.
+         */
+        public HepPlannerStage build() {
+            if (this.rules.isEmpty())
+                throw new IllegalStateException("A planner stage requires at least one rule");
+
+            if (this.required && this.matchLimit == HepProgram.MATCH_UNTIL_FIXPOINT)
+                throw new IllegalStateException("A required planner stage requires an explicit match limit");
+
+            int chunkMatchLimit = Math.min(this.matchLimit, CHUNK_MATCH_LIMIT);
+            int maxChunkCount = (int) Math.ceil((double) this.matchLimit / chunkMatchLimit);
+            return new HepPlannerStage(this.name, this.createProgram(this.matchLimit), this.createProgram(chunkMatchLimit),
+                    maxChunkCount, this.required);
+        }
+
+        /**
+         * Method which creates the program applying the rules of the stage with a given match limit.
+         */
+        private HepProgram createProgram(int matchLimit) {
+            HepProgramBuilder hepProgramBuilder = new HepProgramBuilder();
+            hepProgramBuilder.addMatchOrder(this.matchOrder);
+            hepProgramBuilder.addMatchLimit(matchLimit);
+            for (RelOptRule rule : this.rules)
+                hepProgramBuilder.addRuleInstance(rule);
+
+            return hepProgramBuilder.build();
+        }
+    }
+
+}
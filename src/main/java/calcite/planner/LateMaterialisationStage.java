@@ -0,0 +1,104 @@
+package calcite.planner;
+
+import calcite.operators.LogicalArrowTableScan;
+import org.apache.calcite.plan.RelOptUtil;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.core.Aggregate;
+import org.apache.calcite.rel.core.Filter;
+import org.apache.calcite.rel.core.Join;
+import org.apache.calcite.rel.core.Project;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.util.ImmutableBitSet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link LateMaterialisationStage} classifies the output columns of each {@link LogicalArrowTableScan}
+ * as early or late columns. Early columns are needed by the selective operators above the scan, i.e.
+ * the conditions of filters and joins, and are read by the scan itself. Late columns are only needed
+ * once these operators have been applied, so the engine can fetch them for the surviving rows only.
+ * Aggregates need all of their input columns for every input row, so the classification restarts
+ * below each aggregate.
+ */
+public final class LateMaterialisationStage extends PlannerStage {
+
+    /**
+     * Constructs a {@link LateMaterialisationStage}.
+     * @param name The name of the stage.
+     */
+    public LateMaterialisationStage(String name) {
+        super(name);
+    }
+
+    @Override
+    protected RelNode run(RelNode plan) {
+        // The root of the plan is not followed by any selective operator, so none of its columns are early columns
+        return this.classify(plan, ImmutableBitSet.of(), false);
+    }
+
+    /**
+     * Method which classifies the scan columns in a (sub)plan.
+     * @param operator The root of the (sub)plan to classify the scan columns of.
+     * @param earlyColumns The output columns of {@code operator} that are needed by a selective operator above it.
+     * @param belowSelectiveOperator Whether {@code operator} is below a selective operator.
+     * @return The (sub)plan in which each scan is annotated with its late columns.
+     */
+    private RelNode classify(RelNode operator, ImmutableBitSet earlyColumns, boolean belowSelectiveOperator) {
+        if (operator instanceof LogicalArrowTableScan scan) {
+            // Without selective operators above the scan, all columns are needed for all rows anyway
+            ImmutableBitSet lateColumns = ImmutableBitSet.range(scan.getRowType().getFieldCount()).except(earlyColumns);
+            if (!belowSelectiveOperator || earlyColumns.isEmpty())
+                lateColumns = ImmutableBitSet.of();
+
+            return scan.withLateColumns(lateColumns);
+        }
+
+        List<ImmutableBitSet> inputEarlyColumns = new ArrayList<>(operator.getInputs().size());
+        boolean inputsBelowSelectiveOperator = belowSelectiveOperator;
+
+        if (operator instanceof Filter filter) {
+            inputEarlyColumns.add(earlyColumns.union(RelOptUtil.InputFinder.bits(filter.getCondition())));
+            inputsBelowSelectiveOperator = true;
+
+        } else if (operator instanceof Project project) {
+            ImmutableBitSet.Builder projectInputColumns = ImmutableBitSet.builder();
+            for (int earlyColumn : earlyColumns) {
+                RexNode projection = project.getProjects().get(earlyColumn);
+                projectInputColumns.addAll(RelOptUtil.InputFinder.bits(projection));
+            }
+            inputEarlyColumns.add(projectInputColumns.build());
+
+        } else if (operator instanceof Join join) {
+            int leftFieldCount = join.getLeft().getRowType().getFieldCount();
+            int fieldCount = join.getRowType().getFieldCount();
+            ImmutableBitSet joinEarlyColumns = earlyColumns.union(RelOptUtil.InputFinder.bits(join.getCondition()));
+            inputEarlyColumns.add(joinEarlyColumns.intersect(ImmutableBitSet.range(leftFieldCount)));
+            inputEarlyColumns.add(joinEarlyColumns.intersect(ImmutableBitSet.range(leftFieldCount, fieldCount)).shift(-leftFieldCount));
+            inputsBelowSelectiveOperator = true;
+
+        } else if (operator instanceof Aggregate) {
+            // The aggregate consumes all its input columns, which can be fetched after the selective operators below it
+            inputEarlyColumns.add(ImmutableBitSet.of());
+            inputsBelowSelectiveOperator = false;
+
+        } else {
+            // Conservatively treat all input columns of unknown operators as early columns
+            for (RelNode input : operator.getInputs())
+                inputEarlyColumns.add(ImmutableBitSet.range(input.getRowType().getFieldCount()));
+        }
+
+        // Classify the inputs and only copy the operator if any of them changed
+        List<RelNode> inputs = operator.getInputs();
+        List<RelNode> newInputs = new ArrayList<>(inputs.size());
+        boolean inputsChanged = false;
+        for (int i = 0; i < inputs.size(); i++) {
+            RelNode newInput = this.classify(inputs.get(i), inputEarlyColumns.get(i), inputsBelowSelectiveOperator);
+            newInputs.add(newInput);
+            inputsChanged |= newInput != inputs.get(i);
+        }
+
+        return inputsChanged ? operator.copy(operator.getTraitSet(), newInputs) : operator;
+    }
+
+}
@@ -0,0 +1,75 @@
+package calcite.planner;
+
+import org.apache.calcite.jdbc.CalciteSchema;
+import org.apache.calcite.plan.RelOptTable;
+import org.apache.calcite.rel.RelNode;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A {@link MaterializationSource} provides the materializations of the database of a query to the
+ * {@link MaterializedViewRewriteStage}. Like the {@link PlanningDeadline}, it is made available through
+ * the context of the planner of the query plan. Registering the materializations requires parsing,
+ * validating and converting each materialized query, so this is only done once the stage is actually
+ * applied, rather than for every plan.
+ */
+public final class MaterializationSource {
+
+    /**
+     * The schema of the database containing the materializations.
+     */
+    private final CalciteSchema databaseSchema;
+
+    /**
+     * The {@link RelOptTable.ViewExpander} to convert the materialized queries with, or {@code null} if it
+     * has not been set yet.
+     */
+    private RelOptTable.@Nullable ViewExpander viewExpander;
+
+    /**
+     * Constructs a {@link MaterializationSource}.
+     * @param databaseSchema The schema of the database containing the materializations.
+     */
+    public MaterializationSource(CalciteSchema databaseSchema) {
+        this.databaseSchema = databaseSchema;
+        this.viewExpander = null;
+    }
+
+    /**
+     * Method which sets the view expander used for converting the materialized queries. This is
+     * normally the planner in whose context {@code this} is placed, which only exists once its
+     * context has been created.
+     * @param viewExpander The {@link RelOptTable.ViewExpander} to convert the materialized queries with.
+     */
+    public void setViewExpander(RelOptTable.ViewExpander viewExpander) {
+        this.viewExpander = viewExpander;
+    }
+
+    /**
+     * Method to obtain the materialization source of a query plan from the context of its planner.
+     * @param plan The query plan to obtain the materialization source for.
+     * @return The {@link MaterializationSource} of {@code plan}, or {@code null} if none was set.
+     */
+    public static @Nullable MaterializationSource of(RelNode plan) {
+        return plan.getCluster().getPlanner().getContext().unwrap(MaterializationSource.class);
+    }
+
+    /**
+     * Method to obtain the schema of the database containing the materializations.
+     * @return The schema of the database.
+     */
+    public CalciteSchema getDatabaseSchema() {
+        return this.databaseSchema;
+    }
+
+    /**
+     * Method to obtain the view expander used for converting the materialized queries.
+     * @return The {@link RelOptTable.ViewExpander} of {@code this}.
+     */
+    public RelOptTable.ViewExpander getViewExpander() {
+        if (this.viewExpander == null)
+            throw new IllegalStateException("The view expander of the materialization source has not been set");
+
+        return this.viewExpander;
+    }
+
+}
@@ -0,0 +1,131 @@
+package calcite.planner;
+
+import calcite.metadata.AethraMetadataHandlerProvider;
+import org.apache.calcite.jdbc.CalciteSchema;
+import org.apache.calcite.plan.RelOptCluster;
+import org.apache.calcite.plan.RelOptCost;
+import org.apache.calcite.plan.RelOptMaterialization;
+import org.apache.calcite.plan.RelOptMaterializations;
+import org.apache.calcite.plan.RelOptTable;
+import org.apache.calcite.plan.RelOptUtil;
+import org.apache.calcite.plan.hep.HepMatchOrder;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.logical.LogicalTableScan;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.rel.rules.CalcSplitRule;
+import org.apache.calcite.rel.rules.ProjectRemoveRule;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.util.Pair;
+import util.arrow.ArrowTable;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A {@link MaterializedViewRewriteStage} substitutes the materializations of the database of a query
+ * plan, as provided by the {@link MaterializationSource} of the plan, for the parts of the plan they can
+ * answer. The materializations are only registered with the planner of the plan when the stage is
+ * applied. Each combination of materializations that can be substituted yields a candidate plan, and
+ * the candidate with the lowest cumulative cost, which is driven by the row counts of the scanned
+ * tables, is kept. The original plan is kept if none of the candidates is cheaper. Once the
+ * {@link PlanningDeadline} of the plan passes, the cheapest plan among the candidates considered so
+ * far is returned.
+ */
+public final class MaterializedViewRewriteStage extends PlannerStage {
+
+    /**
+     * Stage which splits the calcs introduced by the substitution into the projections and filters
+     * supported by the engine, which is required as the engine cannot evaluate calcs.
+     */
+    private static final HepPlannerStage CALC_SPLITTING_STAGE = HepPlannerStage.builder("calc-splitting")
+            .required()
+            .matchOrder(HepMatchOrder.BOTTOM_UP)
+            .matchLimit(1024)
+            .addRuleInstance(CalcSplitRule.Config.DEFAULT.toRule())
+            .addRuleInstance(ProjectRemoveRule.Config.DEFAULT.toRule())
+            .build();
+
+    /**
+     * Constructs a {@link MaterializedViewRewriteStage}.
+     * @param name The name of the stage.
+     */
+    public MaterializedViewRewriteStage(String name) {
+        super(name);
+    }
+
+    @Override
+    protected RelNode run(RelNode plan) {
+        MaterializationSource materializationSource = MaterializationSource.of(plan);
+        if (materializationSource != null)
+            registerMaterializations(materializationSource.getDatabaseSchema(), materializationSource.getViewExpander(), plan.getCluster());
+
+        List<RelOptMaterialization> materializations = plan.getCluster().getPlanner().getMaterializations();
+        if (materializations.isEmpty())
+            return plan;
+
+        RelMetadataQuery mq = plan.getCluster().getMetadataQuery();
+        RelNode cheapestPlan = plan;
+        RelOptCost cheapestCost = mq.getCumulativeCost(plan);
+
+        PlanningDeadline deadline = PlanningDeadline.of(plan);
+        for (Pair<RelNode, List<RelOptMaterialization>> rewrite : RelOptMaterializations.useMaterializedViews(plan, materializations)) {
+            if (deadline.hasPassed()) {
+                deadline.markExceeded();
+                break;
+            }
+
+            RelNode rewrittenPlan = CALC_SPLITTING_STAGE.apply(rewrite.left);
+            RelOptCost rewrittenCost = mq.getCumulativeCost(rewrittenPlan);
+
+            if (rewrittenCost != null && (cheapestCost == null || rewrittenCost.isLt(cheapestCost))) {
+                cheapestPlan = rewrittenPlan;
+                cheapestCost = rewrittenCost;
+            }
+        }
+
+        return cheapestPlan;
+    }
+
+    /**
+     * Method which registers the materializations of a database with the planner of a query plan, so
+     * that they can be substituted for parts of the plan.
+     * @param databaseSchema The schema of the database containing the materializations.
+     * @param viewExpander The {@link RelOptTable.ViewExpander} to convert the materialized queries with.
+     * @param cluster The cluster of the query plan to register the materializations for.
+     */
+    private static void registerMaterializations(CalciteSchema databaseSchema, RelOptTable.ViewExpander viewExpander,
+                                                RelOptCluster cluster) {
+        for (String tableName : databaseSchema.getTableNames()) {
+            CalciteSchema.TableEntry tableEntry = databaseSchema.getTable(tableName, true);
+            if (tableEntry == null || !(tableEntry.getTable() instanceof ArrowTable arrowTable) || !arrowTable.isMaterialization())
+                continue;
+
+            // Convert the materialized query, which should produce exactly the columns of the table
+            RelDataType tableType = arrowTable.getRowType(cluster.getTypeFactory());
+            RelNode queryRel = viewExpander.expandView(tableType, arrowTable.getMaterializationQuery(), List.of(), null).project();
+
+            // The materialized query is converted in a cluster of its own, which should use the same metadata handlers
+            AethraMetadataHandlerProvider.install(queryRel.getCluster());
+
+            if (queryRel.getRowType().getFieldCount() != tableType.getFieldCount())
+                throw new IllegalStateException("The query materialized in table '" + tableName + "' produces "
+                        + queryRel.getRowType().getFieldCount() + " columns instead of " + tableType.getFieldCount());
+
+            // A materialization of a query without tables can never replace part of a plan
+            Set<RelOptTable> queryTables = RelOptUtil.findTables(queryRel);
+            if (queryTables.isEmpty())
+                continue;
+
+            // Scan the materialization in the cluster of the query plan, converting its columns to the types of the materialized query
+            RelOptTable materializationTable = queryTables.iterator().next().getRelOptSchema().getTableForMember(List.of(tableName));
+            if (materializationTable == null)
+                continue;
+
+            RelNode tableRel = RelOptUtil.createCastRel(
+                    LogicalTableScan.create(cluster, materializationTable, List.of()), queryRel.getRowType(), true);
+            cluster.getPlanner().addMaterialization(
+                    new RelOptMaterialization(tableRel, queryRel, null, materializationTable.getQualifiedName()));
+        }
+    }
+
+}
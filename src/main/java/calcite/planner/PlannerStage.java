@@ -0,0 +1,85 @@
+package calcite.planner;
+
+import org.apache.calcite.rel.RelNode;
+
+/**
+ * A {@link PlannerStage} is a single step of the Aethra planning pipeline, which transforms a query
+ * plan into an equivalent query plan. The time taken by each application of the stage is recorded in
+ * the {@link StageTimings} of the plan, so that the cost of each stage can be measured individually.
+ * As the stages are shared by all concurrent planning calls, they do not hold any per-call state.
+ * Stages are optional unless the plan cannot be encoded without them: once the
+ * {@link PlanningDeadline} of a plan has passed, optional stages are skipped.
+ */
+public abstract class PlannerStage {
+
+    /**
+     * The name of the stage, used for identifying it in timing information.
+     */
+    private final String name;
+
+    /**
+     * Whether the stage needs to be applied regardless of the {@link PlanningDeadline} of the plan.
+     */
+    private final boolean required;
+
+    /**
+     * Constructs an optional {@link PlannerStage}.
+     * @param name The name of the stage.
+     */
+    protected PlannerStage(String name) {
+        this(name, false);
+    }
+
+    /**
+     * Constructs a {@link PlannerStage}.
+     * @param name The name of the stage.
+     * @param required Whether the stage needs to be applied regardless of the deadline of the plan.
+     */
+    protected PlannerStage(String name, boolean required) {
+        this.name = name;
+        this.required = required;
+    }
+
+    /**
+     * Method which applies this stage to a query plan while measuring its execution time.
+     * @param plan The query plan to apply the stage to.
+     * @return The query plan resulting from the stage, which is {@code plan} itself if the stage is
+     * optional and the deadline of the plan has already passed.
+     */
+    public final RelNode apply(RelNode plan) {
+        PlanningDeadline deadline = PlanningDeadline.of(plan);
+        if (!this.required && deadline.hasPassed()) {
+            deadline.markExceeded();
+            return plan;
+        }
+
+        long startTime = System.nanoTime();
+        RelNode result = this.run(plan);
+        StageTimings.of(plan).record(this.name, System.nanoTime() - startTime);
+        return result;
+    }
+
+    /**
+     * Method which performs the actual transformation of the stage.
+     * @param plan The query plan to transform.
+     * @return The transformed query plan.
+     */
+    protected abstract RelNode run(RelNode plan);
+
+    /**
+     * Method to obtain the name of the stage.
+     * @return The name of the stage represented by {@code this}.
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Method to check whether the stage is required.
+     * @return Whether {@code this} is applied regardless of the deadline of the plan.
+     */
+    public boolean isRequired() {
+        return this.required;
+    }
+
+}
@@ -0,0 +1,93 @@
+package calcite.planner;
+
+import org.apache.calcite.rel.RelNode;
+
+/**
+ * A {@link PlanningDeadline} bounds the time that may be spent on planning a single query. The
+ * deadline is made available to the {@link PlannerStage}s through the context of the planner of the
+ * query plan. Once it has passed, optional stages are skipped or cut short, so that the plan found so
+ * far is returned instead. Whether this happened is recorded, so it can be reported to the caller.
+ */
+public final class PlanningDeadline {
+
+    /**
+     * The deadline of plans whose planning time is not bounded.
+     */
+    private static final PlanningDeadline UNBOUNDED = new PlanningDeadline(0, false);
+
+    /**
+     * The value of {@link System#nanoTime()} at which the deadline passes.
+     */
+    private final long deadlineNanos;
+
+    /**
+     * Whether the planning time is bounded by {@code this}.
+     */
+    private final boolean bounded;
+
+    /**
+     * Whether planning was cut short because the deadline passed.
+     */
+    private volatile boolean exceeded;
+
+    private PlanningDeadline(long deadlineNanos, boolean bounded) {
+        this.deadlineNanos = deadlineNanos;
+        this.bounded = bounded;
+        this.exceeded = false;
+    }
+
+    /**
+     * Method to obtain a deadline which never passes.
+     * @return The unbounded {@link PlanningDeadline}.
+     */
+    public static PlanningDeadline unbounded() {
+        return UNBOUNDED;
+    }
+
+    /**
+     * Method to create a deadline which passes after a given planning budget from now.
+     * @param budgetNanos The planning budget in nanoseconds, which is unbounded if it is not positive.
+     * @return The {@link PlanningDeadline} for the budget.
+     */
+    public static PlanningDeadline after(long budgetNanos) {
+        if (budgetNanos <= 0)
+            return UNBOUNDED;
+
+        return new PlanningDeadline(System.nanoTime() + budgetNanos, true);
+    }
+
+    /**
+     * Method to obtain the deadline of a query plan from the context of its planner.
+     * @param plan The query plan to obtain the deadline for.
+     * @return The {@link PlanningDeadline} of {@code plan}, which is unbounded if none was set.
+     */
+    public static PlanningDeadline of(RelNode plan) {
+        PlanningDeadline deadline = plan.getCluster().getPlanner().getContext().unwrap(PlanningDeadline.class);
+        return deadline == null ? UNBOUNDED : deadline;
+    }
+
+    /**
+     * Method to check whether the deadline has passed.
+     * @return Whether the deadline represented by {@code this} has passed.
+     */
+    public boolean hasPassed() {
+        return this.bounded && System.nanoTime() - this.deadlineNanos >= 0;
+    }
+
+    /**
+     * Method which records that planning was cut short because the deadline passed.
+     */
+    public void markExceeded() {
+        assert this.bounded;
+        this.exceeded = true;
+    }
+
+    /**
+     * Method to check whether planning was cut short because the deadline passed.
+     * @return Whether {@link #markExceeded()} was invoked on {@code this}.
+     */
+    public boolean isExceeded() {
+        return this.exceeded;
+    }
+
+}
@@ -0,0 +1,88 @@
+package calcite.planner;
+
+import org.apache.calcite.rel.RelNode;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link StageTimings} collect the time taken by each {@link PlannerStage} while planning a single query.
+ * Like the {@link PlanningDeadline}, they are made available to the stages through the context of the
+ * planner of the query plan, so that concurrent planning calls each collect their own timings.
+ */
+public final class StageTimings {
+
+    /**
+     * The timings of plans for which no timings are collected, which discards all recorded times.
+     */
+    private static final StageTimings DISCARDED = new StageTimings(false);
+
+    /**
+     * Whether the times recorded with {@code this} are kept.
+     */
+    private final boolean collected;
+
+    /**
+     * The total time in nanoseconds taken by each stage, in the order in which the stages were first applied.
+     */
+    private final Map<String, Long> stageTimesNanos;
+
+    private StageTimings(boolean collected) {
+        this.collected = collected;
+        this.stageTimesNanos = new LinkedHashMap<>();
+    }
+
+    /**
+     * Method to create the timings for planning a single query.
+     * @return A new, empty {@link StageTimings}.
+     */
+    public static StageTimings create() {
+        return new StageTimings(true);
+    }
+
+    /**
+     * Method to obtain the timings of a query plan from the context of its planner.
+     * @param plan The query plan to obtain the timings for.
+     * @return The {@link StageTimings} of {@code plan}, which discard all times if none were set.
+     */
+    public static StageTimings of(RelNode plan) {
+        StageTimings timings = plan.getCluster().getPlanner().getContext().unwrap(StageTimings.class);
+        return timings == null ? DISCARDED : timings;
+    }
+
+    /**
+     * Method which records the time taken by an application of a stage. The times of repeated
+     * applications of the same stage are summed.
+     * @param stageName The name of the stage that was applied.
+     * @param timeNanos The time taken by the application in nanoseconds.
+     */
+    public void record(String stageName, long timeNanos) {
+        if (this.collected)
+            this.stageTimesNanos.merge(stageName, timeNanos, Long::sum);
+    }
+
+    /**
+     * Method to obtain the recorded times.
+     * @return The total time in nanoseconds taken by each applied stage, in order of first application.
+     */
+    public Map<String, Long> getStageTimesNanos() {
+        return this.stageTimesNanos;
+    }
+
+    /**
+     * Method which formats the recorded times.
+     * Form: {stage name}={time in nanoseconds},{stage name}={time in nanoseconds},...
+     * @return The recorded times as a string.
+     */
+    public String format() {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, Long> stageTime : this.stageTimesNanos.entrySet()) {
+            if (!builder.isEmpty())
+                builder.append(',');
+
+            builder.append(stageTime.getKey()).append('=').append(stageTime.getValue());
+        }
+        return builder.toString();
+    }
+
+}
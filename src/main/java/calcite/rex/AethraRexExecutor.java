@@ -0,0 +1,225 @@
+package calcite.rex;
+
+import org.apache.calcite.avatica.util.DateTimeUtils;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rex.RexBuilder;
+import org.apache.calcite.rex.RexCall;
+import org.apache.calcite.rex.RexExecutor;
+import org.apache.calcite.rex.RexLiteral;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexShuttle;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.sql.type.SqlTypeFamily;
+import org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.calcite.sql.type.SqlTypeUtil;
+import org.apache.calcite.util.DateString;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.List;
+
+/**
+ * A {@link RexExecutor} which folds constant expressions by interpreting them directly, instead of
+ * generating and compiling Java code for them like {@link org.apache.calcite.rex.RexExecutorImpl}.
+ * This keeps constant reduction usable within a native image. Expressions which cannot be folded by
+ * this executor are returned unchanged, so that they are simply left for the engine to evaluate. This
+ * includes arithmetic and casts whose result does not fit its type, so that their overflow is still
+ * detected at run time instead of being folded into an out-of-range literal.
+ */
+public final class AethraRexExecutor implements RexExecutor {
+
+    /**
+     * The singleton instance of the {@link AethraRexExecutor}.
+     */
+    public static final AethraRexExecutor INSTANCE = new AethraRexExecutor();
+
+    private AethraRexExecutor() {
+
+    }
+
+    @Override
+    public void reduce(RexBuilder rexBuilder, List<RexNode> constExps, List<RexNode> reducedValues) {
+        final ConstantFoldingShuttle foldingShuttle = new ConstantFoldingShuttle(rexBuilder);
+        for (RexNode constExp : constExps)
+            reducedValues.add(constExp.accept(foldingShuttle));
+    }
+
+    /**
+     * {@link RexShuttle} which replaces each call over literal operands by the literal it evaluates to,
+     * working from the leaves of the expression upwards.
+     */
+    private static final class ConstantFoldingShuttle extends RexShuttle {
+
+        private final RexBuilder rexBuilder;
+
+        private ConstantFoldingShuttle(RexBuilder rexBuilder) {
+            this.rexBuilder = rexBuilder;
+        }
+
+        @Override public RexNode visitCall(RexCall call) {
+            // First fold the operands of the call
+            RexNode visitedNode = super.visitCall(call);
+            if (!(visitedNode instanceof RexCall visitedCall))
+                return visitedNode;
+
+            // Then fold the call itself if all of its operands are now literals
+            for (RexNode operand : visitedCall.getOperands()) {
+                if (!(operand instanceof RexLiteral))
+                    return visitedCall;
+            }
+
+            RexNode foldedCall = this.fold(visitedCall);
+            return foldedCall != null ? foldedCall : visitedCall;
+        }
+
+        /**
+         * Folds a call over literal operands into a literal.
+         * @param call The call to fold.
+         * @return The literal resulting from the call, or {@code null} if the call cannot be folded.
+         */
+        private @Nullable RexNode fold(RexCall call) {
+            List<RexNode> operands = call.getOperands();
+            RelDataType resultType = call.getType();
+
+            switch (call.getKind()) {
+                case CAST: {
+                    RexNode castOperand = this.rexBuilder.makeCast(resultType, operands.get(0), true);
+                    if (!(castOperand instanceof RexLiteral castLiteral))
+                        return null;
+
+                    if (SqlTypeUtil.isExactNumeric(resultType) && !castLiteral.isNull()
+                            && !fitsType(castLiteral.getValueAs(BigDecimal.class), resultType))
+                        return null;
+
+                    return castLiteral;
+                }
+
+                case MINUS_PREFIX: {
+                    RexLiteral operand = (RexLiteral) operands.get(0);
+                    if (!SqlTypeUtil.isExactNumeric(operand.getType()))
+                        return null;
+                    if (operand.isNull())
+                        return this.rexBuilder.makeNullLiteral(resultType);
+
+                    return this.makeExactLiteral(operand.getValueAs(BigDecimal.class).negate(), resultType);
+                }
+
+                case PLUS:
+                case MINUS:
+                case TIMES: {
+                    if (operands.size() != 2)
+                        return null;
+
+                    RexLiteral lhs = (RexLiteral) operands.get(0);
+                    RexLiteral rhs = (RexLiteral) operands.get(1);
+                    if (lhs.isNull() || rhs.isNull())
+                        return this.rexBuilder.makeNullLiteral(resultType);
+
+                    if (SqlTypeUtil.isExactNumeric(lhs.getType()) && SqlTypeUtil.isExactNumeric(rhs.getType()))
+                        return this.foldExactArithmetic(call.getKind(), lhs, rhs, resultType);
+
+                    if (call.getKind() != SqlKind.TIMES
+                            && lhs.getType().getSqlTypeName() == SqlTypeName.DATE
+                            && SqlTypeUtil.isInterval(rhs.getType()))
+                        return this.foldDateArithmetic(call.getKind(), lhs, rhs);
+
+                    return null;
+                }
+
+                default:
+                    return null;
+            }
+        }
+
+        /**
+         * Folds an addition, subtraction or multiplication over two exact numeric literals.
+         */
+        private @Nullable RexNode foldExactArithmetic(SqlKind kind, RexLiteral lhs, RexLiteral rhs, RelDataType resultType) {
+            if (!SqlTypeUtil.isExactNumeric(resultType))
+                return null;
+
+            BigDecimal lhsValue = lhs.getValueAs(BigDecimal.class);
+            BigDecimal rhsValue = rhs.getValueAs(BigDecimal.class);
+            if (lhsValue == null || rhsValue == null)
+                return null;
+
+            BigDecimal result = switch (kind) {
+                case PLUS -> lhsValue.add(rhsValue);
+                case MINUS -> lhsValue.subtract(rhsValue);
+                case TIMES -> lhsValue.multiply(rhsValue);
+                default -> throw new AssertionError("Unexpected arithmetic kind " + kind);
+            };
+
+            return this.makeExactLiteral(result, resultType);
+        }
+
+        /**
+         * Folds the addition or subtraction of an interval literal to or from a date literal.
+         */
+        private @Nullable RexNode foldDateArithmetic(SqlKind kind, RexLiteral date, RexLiteral interval) {
+            DateString dateValue = date.getValueAs(DateString.class);
+            BigDecimal intervalValue = interval.getValueAs(BigDecimal.class);
+            if (dateValue == null || intervalValue == null)
+                return null;
+
+            int sign = kind == SqlKind.PLUS ? 1 : -1;
+            int daysSinceEpoch = dateValue.getDaysSinceEpoch();
+
+            if (interval.getType().getSqlTypeName().getFamily() == SqlTypeFamily.INTERVAL_YEAR_MONTH) {
+                // Year-month intervals are represented as a number of months
+                int months = sign * intervalValue.intValueExact();
+                daysSinceEpoch = DateTimeUtils.addMonths(daysSinceEpoch, months);
+
+            } else {
+                // Day-time intervals are represented as a number of milliseconds, only whole days keep the result a date
+                BigDecimal[] daysAndRemainder = intervalValue.divideAndRemainder(BigDecimal.valueOf(DateTimeUtils.MILLIS_PER_DAY));
+                if (daysAndRemainder[1].signum() != 0)
+                    return null;
+
+                daysSinceEpoch += sign * daysAndRemainder[0].intValueExact();
+            }
+
+            return this.rexBuilder.makeDateLiteral(DateString.fromDaysSinceEpoch(daysSinceEpoch));
+        }
+
+        /**
+         * Creates an exact numeric literal of a given type, adjusting the scale of the value to that of the type.
+         * @return The literal, or {@code null} if the value does not fit the type.
+         */
+        private @Nullable RexNode makeExactLiteral(BigDecimal value, RelDataType type) {
+            if (type.getSqlTypeName() == SqlTypeName.DECIMAL)
+                value = value.setScale(type.getScale(), RoundingMode.HALF_UP);
+
+            if (!fitsType(value, type))
+                return null;
+
+            return this.rexBuilder.makeExactLiteral(value, type);
+        }
+
+        /**
+         * Checks whether an exact numeric value lies within the range of an exact numeric type.
+         * Decimal values are expected to have the scale of their type already.
+         */
+        private static boolean fitsType(@Nullable BigDecimal value, RelDataType type) {
+            if (value == null)
+                return false;
+
+            return switch (type.getSqlTypeName()) {
+                case TINYINT -> fitsRange(value, Byte.MIN_VALUE, Byte.MAX_VALUE);
+                case SMALLINT -> fitsRange(value, Short.MIN_VALUE, Short.MAX_VALUE);
+                case INTEGER -> fitsRange(value, Integer.MIN_VALUE, Integer.MAX_VALUE);
+                case BIGINT -> fitsRange(value, Long.MIN_VALUE, Long.MAX_VALUE);
+                case DECIMAL -> value.unscaledValue().abs().compareTo(BigInteger.TEN.pow(type.getPrecision())) < 0;
+                default -> false;
+            };
+        }
+
+        private static boolean fitsRange(BigDecimal value, long minValue, long maxValue) {
+            return value.compareTo(BigDecimal.valueOf(minValue)) >= 0 && value.compareTo(BigDecimal.valueOf(maxValue)) <= 0;
+        }
+
+    }
+
+}
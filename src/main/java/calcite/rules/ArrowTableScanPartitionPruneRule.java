@@ -0,0 +1,229 @@
+package calcite.rules;
+
+import calcite.operators.LogicalArrowTableScan;
+import calcite.rex.AethraRexExecutor;
+import util.arrow.ArrowTable;
+import util.arrow.ArrowTablePartition;
+import org.apache.calcite.plan.RelOptPredicateList;
+import org.apache.calcite.plan.RelOptRuleCall;
+import org.apache.calcite.plan.RelOptUtil;
+import org.apache.calcite.plan.RelRule;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.logical.LogicalFilter;
+import org.apache.calcite.rex.RexBuilder;
+import org.apache.calcite.rex.RexCall;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexLiteral;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexShuttle;
+import org.apache.calcite.rex.RexSimplify;
+import org.apache.calcite.rex.RexUtil;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.tools.RelBuilder;
+import org.apache.calcite.util.ImmutableBitSet;
+import org.immutables.value.Value;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Planner rule that prunes the partitions read by a {@link LogicalArrowTableScan} over a partitioned
+ * {@link ArrowTable}, using the conjuncts of a {@link LogicalFilter} on top of the scan which only
+ * reference partition columns. Such conjuncts are evaluated against the partition values of each
+ * selected partition, and partitions for which a conjunct is never true are no longer read. If the
+ * conjuncts hold for every remaining partition, they are removed from the filter as well.
+ */
+@Value.Enclosing
+public class ArrowTableScanPartitionPruneRule extends RelRule<ArrowTableScanPartitionPruneRule.Config> {
+
+    /**
+     * Creates an instance of the {@link ArrowTableScanPartitionPruneRule}.
+     */
+    protected ArrowTableScanPartitionPruneRule(Config config) {
+        super(config);
+    }
+
+    @Override
+    public void onMatch(RelOptRuleCall call) {
+        final LogicalFilter filter = call.rel(0);
+        final LogicalArrowTableScan scan = call.rel(1);
+        apply(call, filter, scan);
+    }
+
+    /**
+     * Applies the partition pruning of a {@link LogicalArrowTableScan} on rule match.
+     */
+    protected void apply(RelOptRuleCall call, LogicalFilter filter, LogicalArrowTableScan scan) {
+        final ArrowTable arrowTable = scan.getTable().unwrap(ArrowTable.class);
+        assert arrowTable != null && arrowTable.isPartitioned();
+
+        // Split the filter condition into the conjuncts over partition columns only and the remaining conjuncts
+        final List<RexNode> partitionConjuncts = new ArrayList<>();
+        final List<RexNode> remainingConjuncts = new ArrayList<>();
+        for (RexNode conjunct : RelOptUtil.conjunctions(filter.getCondition())) {
+            if (referencesOnlyPartitionColumns(conjunct, scan, arrowTable))
+                partitionConjuncts.add(conjunct);
+            else
+                remainingConjuncts.add(conjunct);
+        }
+
+        if (partitionConjuncts.isEmpty())
+            return;
+
+        // Evaluate the partition conjuncts for each partition that is currently selected
+        final RexBuilder rexBuilder = filter.getCluster().getRexBuilder();
+        final RexSimplify simplify = new RexSimplify(rexBuilder, RelOptPredicateList.EMPTY, AethraRexExecutor.INSTANCE);
+        final RexNode partitionCondition = RexUtil.expandSearch(rexBuilder, null,
+                RexUtil.composeConjunction(rexBuilder, partitionConjuncts));
+
+        final ImmutableBitSet.Builder selectedPartitionsBuilder = ImmutableBitSet.builder();
+        boolean conditionHoldsForSelection = true;
+        for (int partitionIndex : scan.selectedPartitions) {
+            final ArrowTablePartition partition = arrowTable.getPartitions().get(partitionIndex);
+            final RexNode boundCondition = simplify.simplifyUnknownAsFalse(partitionCondition.accept(
+                    new PartitionValueBinder(rexBuilder, scan, arrowTable, partition)));
+
+            if (boundCondition.isAlwaysFalse())
+                continue;
+
+            selectedPartitionsBuilder.set(partitionIndex);
+            conditionHoldsForSelection &= boundCondition.isAlwaysTrue();
+        }
+
+        final ImmutableBitSet selectedPartitions = selectedPartitionsBuilder.build();
+        if (selectedPartitions.equals(scan.selectedPartitions) && !conditionHoldsForSelection)
+            return;
+
+        // Conjuncts which could not be decided for some partition still need to be evaluated by the engine
+        if (!conditionHoldsForSelection)
+            remainingConjuncts.addAll(0, partitionConjuncts);
+
+        // Replace the filter by a scan over the remaining partitions and the remaining conjuncts
+        final LogicalArrowTableScan newScan = LogicalArrowTableScan.create(scan.getCluster(), scan.getTable(),
+                scan.getHints(), scan.projects, selectedPartitions);
+
+        final RelBuilder relBuilder = call.builder();
+        final RelNode newFilter = relBuilder
+                .push(newScan)
+                .filter(remainingConjuncts)
+                .build();
+
+        call.transformTo(newFilter);
+    }
+
+    /**
+     * Method which checks whether an expression over the output of a scan only references partition columns.
+     */
+    private static boolean referencesOnlyPartitionColumns(RexNode expression, LogicalArrowTableScan scan,
+                                                          ArrowTable arrowTable) {
+        final ImmutableBitSet referencedColumns = RelOptUtil.InputFinder.bits(expression);
+        if (referencedColumns.isEmpty() || RexUtil.containsCorrelation(expression) || !RexUtil.isDeterministic(expression))
+            return false;
+
+        for (int referencedColumn : referencedColumns) {
+            if (!arrowTable.isPartitionColumn(scan.projects.get(referencedColumn)))
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * {@link RexShuttle} which replaces references to partition columns by the values of those columns
+     * in a given partition, and folds comparisons between the resulting literals.
+     */
+    private static final class PartitionValueBinder extends RexShuttle {
+
+        private static final Set<SqlKind> FOLDABLE_COMPARISONS = EnumSet.of(
+                SqlKind.EQUALS, SqlKind.NOT_EQUALS,
+                SqlKind.LESS_THAN, SqlKind.LESS_THAN_OR_EQUAL,
+                SqlKind.GREATER_THAN, SqlKind.GREATER_THAN_OR_EQUAL);
+
+        private final RexBuilder rexBuilder;
+        private final LogicalArrowTableScan scan;
+        private final ArrowTable arrowTable;
+        private final ArrowTablePartition partition;
+
+        private PartitionValueBinder(RexBuilder rexBuilder, LogicalArrowTableScan scan, ArrowTable arrowTable,
+                                     ArrowTablePartition partition) {
+            this.rexBuilder = rexBuilder;
+            this.scan = scan;
+            this.arrowTable = arrowTable;
+            this.partition = partition;
+        }
+
+        @Override public RexNode visitInputRef(RexInputRef inputRef) {
+            final int partitionKey = this.arrowTable.getPartitionKey(this.scan.projects.get(inputRef.getIndex()));
+            return this.rexBuilder.makeLiteral(this.partition.getPartitionValue(partitionKey), inputRef.getType());
+        }
+
+        @Override public RexNode visitCall(RexCall call) {
+            final RexNode visitedNode = super.visitCall(call);
+            if (!(visitedNode instanceof RexCall visitedCall) || !FOLDABLE_COMPARISONS.contains(visitedCall.getKind()))
+                return visitedNode;
+
+            final RexNode lhs = visitedCall.getOperands().get(0);
+            final RexNode rhs = visitedCall.getOperands().get(1);
+            if (!(lhs instanceof RexLiteral lhsLiteral) || !(rhs instanceof RexLiteral rhsLiteral))
+                return visitedCall;
+
+            if (lhsLiteral.isNull() || rhsLiteral.isNull())
+                return this.rexBuilder.makeNullLiteral(visitedCall.getType());
+
+            // Only compare literals whose values have a common representation
+            if (lhsLiteral.getTypeName().getFamily() != rhsLiteral.getTypeName().getFamily())
+                return visitedCall;
+
+            final Comparable lhsValue = lhsLiteral.getValueAs(Comparable.class);
+            final Comparable rhsValue = rhsLiteral.getValueAs(Comparable.class);
+            if (lhsValue == null || rhsValue == null)
+                return visitedCall;
+
+            @SuppressWarnings("unchecked")
+            final int comparison = lhsValue.compareTo(rhsValue);
+            final boolean result = switch (visitedCall.getKind()) {
+                case EQUALS -> comparison == 0;
+                case NOT_EQUALS -> comparison != 0;
+                case LESS_THAN -> comparison < 0;
+                case LESS_THAN_OR_EQUAL -> comparison <= 0;
+                case GREATER_THAN -> comparison > 0;
+                case GREATER_THAN_OR_EQUAL -> comparison >= 0;
+                default -> throw new AssertionError("Unexpected comparison kind " + visitedCall.getKind());
+            };
+
+            return this.rexBuilder.makeLiteral(result);
+        }
+
+    }
+
+    /**
+     * Config specification for the {@link ArrowTableScanPartitionPruneRule}.
+     */
+    @Value.Immutable
+    public interface Config extends RelRule.Config {
+
+        /**
+         * Config that matches a {@link LogicalFilter} on top of a {@link LogicalArrowTableScan} over a
+         * partitioned {@link ArrowTable}.
+         */
+        Config DEFAULT = ImmutableArrowTableScanPartitionPruneRule.Config.builder()
+                .operandSupplier(b0 -> b0.operand(LogicalFilter.class).oneInput(b1 ->
+                        b1.operand(LogicalArrowTableScan.class)
+                                .predicate(ArrowTableScanPartitionPruneRule::isPartitioned)
+                                .noInputs()))
+                .build();
+
+        @Override
+        default ArrowTableScanPartitionPruneRule toRule() {
+            return new ArrowTableScanPartitionPruneRule(this);
+        }
+    }
+
+    private static boolean isPartitioned(LogicalArrowTableScan scan) {
+        final ArrowTable arrowTable = scan.getTable().unwrap(ArrowTable.class);
+        return arrowTable != null && arrowTable.isPartitioned();
+    }
+
+}
@@ -0,0 +1,112 @@
+package calcite.rules;
+
+import org.apache.calcite.plan.RelOptRuleCall;
+import org.apache.calcite.plan.RelOptUtil;
+import org.apache.calcite.plan.RelRule;
+import org.apache.calcite.rel.core.JoinRelType;
+import org.apache.calcite.rel.logical.LogicalFilter;
+import org.apache.calcite.rel.logical.LogicalJoin;
+import org.apache.calcite.rex.RexCall;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexUtil;
+import org.apache.calcite.sql.SqlKind;
+import org.immutables.value.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Planner rule that splits the condition of an inner {@link LogicalJoin} consisting of multiple
+ * conjuncts, as obtained from decorrelated subqueries or filters pushed into the join, into a single
+ * equality of a left and a right input column of the same type, which the Aethra Engine joins on,
+ * and a {@link LogicalFilter} on top of the join which evaluates the remaining conjuncts. The first
+ * conjunct of the join condition that is such an equality is kept as join condition.
+ */
+@Value.Enclosing
+public class JoinConditionSplitRule extends RelRule<JoinConditionSplitRule.Config> {
+
+    /**
+     * Creates an instance of the {@link JoinConditionSplitRule}.
+     */
+    protected JoinConditionSplitRule(Config config) {
+        super(config);
+    }
+
+    @Override
+    public void onMatch(RelOptRuleCall call) {
+        final LogicalJoin join = call.rel(0);
+        apply(call, join);
+    }
+
+    /**
+     * Applies the splitting of the condition of a {@link LogicalJoin} on rule match.
+     */
+    protected void apply(RelOptRuleCall call, LogicalJoin join) {
+        // Only the conditions of inner joins can be evaluated on the join result instead
+        if (join.getJoinType() != JoinRelType.INNER)
+            return;
+
+        final List<RexNode> conjuncts = RelOptUtil.conjunctions(join.getCondition());
+        if (conjuncts.size() < 2)
+            return;
+
+        // Find the conjunct to join on
+        final int leftFieldCount = join.getLeft().getRowType().getFieldCount();
+        int joinConjunctIndex = -1;
+        for (int i = 0; i < conjuncts.size() && joinConjunctIndex == -1; i++) {
+            if (isJoinColumnEquality(conjuncts.get(i), leftFieldCount))
+                joinConjunctIndex = i;
+        }
+
+        if (joinConjunctIndex == -1)
+            return;
+
+        // Join on that conjunct and filter the join result on the remaining conjuncts
+        final List<RexNode> remainingConjuncts = new ArrayList<>(conjuncts);
+        final RexNode joinConjunct = remainingConjuncts.remove(joinConjunctIndex);
+        final LogicalJoin newJoin = join.copy(join.getTraitSet(), joinConjunct, join.getLeft(), join.getRight(),
+                join.getJoinType(), join.isSemiJoinDone());
+        final LogicalFilter newFilter = LogicalFilter.create(newJoin,
+                RexUtil.composeConjunction(join.getCluster().getRexBuilder(), remainingConjuncts));
+
+        call.transformTo(newFilter);
+    }
+
+    /**
+     * Method which checks whether a join condition conjunct is an equality between a column of the
+     * left input and a column of the right input of the same type.
+     */
+    private static boolean isJoinColumnEquality(RexNode conjunct, int leftFieldCount) {
+        if (!(conjunct instanceof RexCall call) || call.getKind() != SqlKind.EQUALS)
+            return false;
+
+        if (!(call.getOperands().get(0) instanceof RexInputRef firstRef)
+                || !(call.getOperands().get(1) instanceof RexInputRef secondRef))
+            return false;
+
+        boolean firstIsLeft = firstRef.getIndex() < leftFieldCount;
+        boolean secondIsLeft = secondRef.getIndex() < leftFieldCount;
+        return firstIsLeft != secondIsLeft && firstRef.getType() == secondRef.getType();
+    }
+
+    /**
+     * Config specification for the {@link JoinConditionSplitRule}.
+     */
+    @Value.Immutable
+    public interface Config extends RelRule.Config {
+
+        /**
+         * Config that matches a {@link LogicalJoin}.
+         */
+        Config DEFAULT = ImmutableJoinConditionSplitRule.Config.builder()
+                .operandSupplier(b0 -> b0.operand(LogicalJoin.class).anyInputs())
+                .build();
+
+        @Override
+        default JoinConditionSplitRule toRule() {
+            return new JoinConditionSplitRule(this);
+        }
+    }
+
+}
@@ -0,0 +1,239 @@
+package util.arrow;
+
+import calcite.operators.LogicalArrowTableScan;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.logical.LogicalFilter;
+import org.apache.calcite.rex.RexBuilder;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexShuttle;
+import org.apache.calcite.rex.RexUtil;
+import org.apache.calcite.util.ImmutableBitSet;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class for encoding a batch of optimised query plans, which are executed concurrently, into the Aethra
+ * Engine Plan Format. Each query is encoded as by the {@link AethraQueryEncoder}, preceded by a query line.
+ * Line form: Q;{query index}\n
+ * The line indices within the lines of a query are relative to that query.
+ * <p>
+ * The queries are followed by a shared scan line for each set of scans, possibly of different queries,
+ * which read the same partitions of the same table. The engine can then read the table once for all
+ * these scans in a cooperative scan, which reads the union of the early columns of the scans and feeds
+ * each scan with its early columns. Late columns are still fetched by each scan for its own surviving rows.
+ * If each of the scans is directly followed by a filter, the shared scan can already drop the rows that
+ * pass none of these filters, using the disjunction of their conditions over the shared columns. The
+ * filters of the individual queries remain in place as residual filters.
+ * Line form: SS;{table name};{shared column indices separated by commas};{arrow files to read separated by commas};{shared condition, or empty if there is none};{consumers separated by |}\n
+ * Consumer form: {query index}:{scan line index}:{position of each early column of the scan in the shared columns separated by commas}
+ */
+public final class AethraBatchEncoder {
+
+    private static final int expectedBatchPlanLength = 8192;
+
+    private AethraBatchEncoder() {
+
+    }
+
+    /**
+     * Record identifying the scans that can share a single pass over a table.
+     * @param tableName The name of the table read by the scans.
+     * @param partitions The partitions of the table read by the scans.
+     */
+    private record SharedScanKey(String tableName, ImmutableBitSet partitions) {
+
+    }
+
+    /**
+     * Record describing a scan of a query in the batch that can be fed by a shared scan.
+     * @param queryIndex The index of the query in the batch.
+     * @param lineIndex The line index of the scan in the plan of the query.
+     * @param scan The scan itself.
+     * @param filter The filter directly above the scan, or {@code null} if there is none.
+     */
+    private record ScanConsumer(int queryIndex, int lineIndex, LogicalArrowTableScan scan, @Nullable LogicalFilter filter) {
+
+        /**
+         * Method to obtain the columns of the table that the scan reads for all of its rows.
+         * @return The table column of each early column of the scan, in the order of the scan output.
+         */
+        private List<Integer> earlyTableColumns() {
+            List<Integer> earlyTableColumns = new ArrayList<>(this.scan.projects.size());
+            for (int i = 0; i < this.scan.projects.size(); i++) {
+                if (!this.scan.lateColumns.get(i))
+                    earlyTableColumns.add(this.scan.projects.get(i));
+            }
+            return earlyTableColumns;
+        }
+
+    }
+
+    /**
+     * Method which translates a batch of query plans into the Aethra Engine Plan Format.
+     * @param queryRoots The queries of the batch to translate.
+     * @return The string containing the batch plan.
+     */
+    public static String encode(List<RelNode> queryRoots) {
+        StringBuilder builder = new StringBuilder(expectedBatchPlanLength);
+        Map<SharedScanKey, List<ScanConsumer>> scansByKey = new LinkedHashMap<>();
+
+        for (int queryIndex = 0; queryIndex < queryRoots.size(); queryIndex++) {
+            RelNode queryRoot = queryRoots.get(queryIndex);
+
+            // Line form: Q;{query index}\n
+            builder.append("Q;");
+            builder.append(queryIndex);
+            builder.append('\n');
+
+            Map<RelNode, Integer> lineIndices = new IdentityHashMap<>();
+            AethraQueryEncoder.encodePlan(queryRoot, builder, lineIndices);
+            collectScans(queryRoot, null, queryIndex, lineIndices, scansByKey);
+        }
+
+        for (Map.Entry<SharedScanKey, List<ScanConsumer>> scans : scansByKey.entrySet()) {
+            if (scans.getValue().size() > 1)
+                appendSharedScan(scans.getValue(), builder);
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Method which collects the scans of a (sub)plan, grouped by the table and partitions they read.
+     * @param operator The root of the (sub)plan to collect the scans of.
+     * @param parent The parent operator of {@code operator}, or {@code null} if it is the root of the plan.
+     * @param queryIndex The index of the query containing the (sub)plan in the batch.
+     * @param lineIndices The line index of each operator of the query.
+     * @param scansByKey The map to add the scans to.
+     */
+    private static void collectScans(RelNode operator, @Nullable RelNode parent, int queryIndex, Map<RelNode, Integer> lineIndices,
+                                     Map<SharedScanKey, List<ScanConsumer>> scansByKey) {
+        if (operator instanceof LogicalArrowTableScan scan) {
+            ArrowTable arrowTable = scan.getTable().unwrap(ArrowTable.class);
+            assert arrowTable != null;
+
+            SharedScanKey key = new SharedScanKey(arrowTable.getName(), scan.selectedPartitions);
+            LogicalFilter filter = parent instanceof LogicalFilter parentFilter ? parentFilter : null;
+            scansByKey.computeIfAbsent(key, k -> new ArrayList<>())
+                    .add(new ScanConsumer(queryIndex, lineIndices.get(scan), scan, filter));
+            return;
+        }
+
+        for (RelNode input : operator.getInputs())
+            collectScans(input, operator, queryIndex, lineIndices, scansByKey);
+    }
+
+    /**
+     * Method which appends the shared scan line for a set of scans reading the same partitions of a table.
+     * @param consumers The scans to feed from the shared scan.
+     * @param builder The builder to append the shared scan line to.
+     */
+    private static void appendSharedScan(List<ScanConsumer> consumers, StringBuilder builder) {
+        LogicalArrowTableScan firstScan = consumers.get(0).scan();
+        ArrowTable arrowTable = firstScan.getTable().unwrap(ArrowTable.class);
+        assert arrowTable != null;
+
+        // The shared scan reads the union of the early columns of its consumers
+        ImmutableBitSet.Builder sharedColumnsBuilder = ImmutableBitSet.builder();
+        for (ScanConsumer consumer : consumers)
+            sharedColumnsBuilder.addAll(consumer.earlyTableColumns());
+        List<Integer> sharedColumns = sharedColumnsBuilder.build().asList();
+
+        // Line form: SS;{table name};{shared column indices};{arrow files};{shared condition};{consumers}\n
+        builder.append("SS;");
+        builder.append(arrowTable.getName());
+        builder.append(';');
+
+        for (int i = 0; i < sharedColumns.size(); i++) {
+            builder.append(sharedColumns.get(i));
+
+            if (i != sharedColumns.size() - 1)
+                builder.append(',');
+        }
+        builder.append(';');
+
+        List<File> arrowFiles = arrowTable.getArrowFiles(firstScan.selectedPartitions);
+        for (int i = 0; i < arrowFiles.size(); i++) {
+            builder.append(arrowFiles.get(i).getPath());
+
+            if (i != arrowFiles.size() - 1)
+                builder.append(',');
+        }
+        builder.append(';');
+
+        RexNode sharedCondition = getSharedCondition(consumers, sharedColumns);
+        if (sharedCondition != null) {
+            ImmutableBitSet.Builder dictionaryEncodedColumns = ImmutableBitSet.builder();
+            for (int i = 0; i < sharedColumns.size(); i++) {
+                if (arrowTable.isDictionaryEncoded(sharedColumns.get(i)))
+                    dictionaryEncodedColumns.set(i);
+            }
+
+            AethraExpressionEncoder.encode(
+                    sharedCondition,
+                    firstScan.getCluster().getRexBuilder(),
+                    dictionaryEncodedColumns.build(),
+                    builder);
+        }
+        builder.append(';');
+
+        // Consumer form: {query index}:{scan line index}:{positions of the early columns in the shared columns}
+        for (int i = 0; i < consumers.size(); i++) {
+            ScanConsumer consumer = consumers.get(i);
+            builder.append(consumer.queryIndex());
+            builder.append(':');
+            builder.append(consumer.lineIndex());
+            builder.append(':');
+
+            List<Integer> earlyTableColumns = consumer.earlyTableColumns();
+            for (int j = 0; j < earlyTableColumns.size(); j++) {
+                builder.append(sharedColumns.indexOf(earlyTableColumns.get(j)));
+
+                if (j != earlyTableColumns.size() - 1)
+                    builder.append(',');
+            }
+
+            if (i != consumers.size() - 1)
+                builder.append('|');
+        }
+
+        builder.append('\n');
+    }
+
+    /**
+     * Method which determines the condition a shared scan can apply on behalf of its consumers.
+     * @param consumers The scans fed by the shared scan.
+     * @param sharedColumns The table columns read by the shared scan, in the order of its output.
+     * @return The disjunction of the filter conditions directly above the consumers over the shared columns,
+     * or {@code null} if some consumer is not directly followed by a filter and thus needs all rows.
+     */
+    private static @Nullable RexNode getSharedCondition(List<ScanConsumer> consumers, List<Integer> sharedColumns) {
+        RexBuilder rexBuilder = consumers.get(0).scan().getCluster().getRexBuilder();
+        List<RexNode> conditions = new ArrayList<>(consumers.size());
+
+        for (ScanConsumer consumer : consumers) {
+            if (consumer.filter() == null)
+                return null;
+
+            // The filter columns are early columns of the scan, so they are among the shared columns
+            LogicalArrowTableScan scan = consumer.scan();
+            conditions.add(consumer.filter().getCondition().accept(new RexShuttle() {
+                @Override public RexNode visitInputRef(RexInputRef inputRef) {
+                    int sharedColumn = sharedColumns.indexOf(scan.projects.get(inputRef.getIndex()));
+                    assert sharedColumn >= 0;
+                    return new RexInputRef(sharedColumn, inputRef.getType());
+                }
+            }));
+        }
+
+        return RexUtil.composeDisjunction(rexBuilder, conditions);
+    }
+
+}
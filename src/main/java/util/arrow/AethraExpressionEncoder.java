@@ -0,0 +1,325 @@
+package util.arrow;
+
+import com.google.common.collect.Range;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rex.RexBuilder;
+import org.apache.calcite.rex.RexCall;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexLiteral;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexShuttle;
+import org.apache.calcite.rex.RexUnknownAs;
+import org.apache.calcite.rex.RexUtil;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.sql.SqlOperator;
+import org.apache.calcite.sql.SqlSpecialOperator;
+import org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.calcite.sql.type.SqlTypeUtil;
+import org.apache.calcite.util.ImmutableBitSet;
+import org.apache.calcite.util.Sarg;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Class for encoding {@link RexNode} expressions into the Aethra Engine Plan Format. Expressions are
+ * encoded in the same form as their Calcite digest, except for literals, which are converted to the
+ * physical representation of the Arrow column they are combined with:
+ * <ul>
+ *     <li>DATE literals ({@code ArrowType.Date}) become the number of days since the epoch.</li>
+ *     <li>Exact numeric literals combined with a DECIMAL column ({@code ArrowType.Decimal}) become the
+ *         unscaled long value at the scale of that column.</li>
+ *     <li>CHAR literals combined with a CHAR column ({@code ArrowType.FixedSizeBinary}) become a binary
+ *         literal of the column width, padded with spaces. Trailing spaces beyond the column width are
+ *         dropped, as the values of the column are padded with spaces as well. A literal which is still
+ *         longer than the column width has no representation in the column and keeps the form of its
+ *         Calcite digest, e.g. {@code 'BUILDING CONTRACTORS'}.</li>
+ * </ul>
+ * Literals are only combined with a column by comparisons, additions, subtractions and set membership
+ * tests, as these require their operands to be at the same scale. The operands of a multiplication or
+ * division keep their own scale, since the scale of the result follows from the scales of both operands.
+ * Such literals, as well as DECIMAL literals which cannot be represented exactly at the scale of the
+ * column they are combined with, are encoded at their own scale:
+ * <ul>
+ *     <li>DECIMAL literals become {@code {unscaled value}:DECIMAL({precision}, {scale})}, with the
+ *         precision and scale of the literal type, e.g. the {@code 0.2} of {@code 0.2 * avg(l_quantity)}
+ *         becomes {@code 2:DECIMAL(2, 1)}.</li>
+ *     <li>Integer literals keep the form of their Calcite digest, e.g. {@code 100}.</li>
+ * </ul>
+ * Equality comparisons between a dictionary-encoded column and a literal are encoded as
+ * {@code DICT_EQUALS} and {@code DICT_NOT_EQUALS}, so that the engine can evaluate them on the
+ * dictionary codes of the column instead of on its values.
+ * <p>
+ * Search arguments are expanded into comparisons, except for (negated) IN-lists of at least
+ * {@link #VALUE_SET_MINIMUM_SIZE} values, which are encoded as a single set membership test:
+ * {@code IN_SET({operand}, {value}, {value}, ...)} or {@code NOT_IN_SET(...)}, with the values
+ * converted like the literals of a comparison with the operand. This allows the engine to build a
+ * hash set of the values once and probe it for each row. On dictionary-encoded columns, these are
+ * encoded as {@code DICT_IN_SET} and {@code DICT_NOT_IN_SET} respectively.
+ */
+final class AethraExpressionEncoder {
+
+    private static final HexFormat HEX_FORMAT = HexFormat.of().withUpperCase();
+
+    /**
+     * The minimum number of values of an IN-list for it to be encoded as a set membership test.
+     */
+    private static final int VALUE_SET_MINIMUM_SIZE = 8;
+
+    /**
+     * Operators representing the set membership tests in the expressions to encode.
+     */
+    private static final SqlOperator IN_SET = new SqlSpecialOperator("IN_SET", SqlKind.OTHER_FUNCTION);
+    private static final SqlOperator NOT_IN_SET = new SqlSpecialOperator("NOT_IN_SET", SqlKind.OTHER_FUNCTION);
+    private static final Set<SqlOperator> VALUE_SET_OPERATORS = Set.of(IN_SET, NOT_IN_SET);
+
+    private AethraExpressionEncoder() {
+
+    }
+
+    /**
+     * Method which encodes a single expression into the Aethra Engine Plan Format.
+     * @param expression The expression to encode.
+     * @param rexBuilder The {@link RexBuilder} used for expanding search arguments in the expression.
+     * @param dictionaryEncodedColumns The input columns of the expression which are dictionary-encoded.
+     * @param builder The builder to append the encoded expression to.
+     */
+    static void encode(RexNode expression, RexBuilder rexBuilder, ImmutableBitSet dictionaryEncodedColumns, StringBuilder builder) {
+        // Expand the search operator, keeping large IN-lists as value sets
+        RexNode expandedExpression = expression.accept(new SearchExpandingShuttle(rexBuilder));
+        encode(expandedExpression, null, dictionaryEncodedColumns, builder);
+    }
+
+    /**
+     * Method which encodes a list of expressions into the Aethra Engine Plan Format.
+     * Line form: [{expression}, {expression}, ...]
+     * @param expressions The expressions to encode.
+     * @param rexBuilder The {@link RexBuilder} used for expanding search arguments in the expressions.
+     * @param dictionaryEncodedColumns The input columns of the expressions which are dictionary-encoded.
+     * @param builder The builder to append the encoded expressions to.
+     */
+    static void encode(List<RexNode> expressions, RexBuilder rexBuilder, ImmutableBitSet dictionaryEncodedColumns, StringBuilder builder) {
+        builder.append('[');
+
+        int numberOfExpressions = expressions.size();
+        for (int i = 0; i < numberOfExpressions; i++) {
+            encode(expressions.get(i), rexBuilder, dictionaryEncodedColumns, builder);
+
+            if (i != numberOfExpressions - 1)
+                builder.append(", ");
+        }
+
+        builder.append(']');
+    }
+
+    private static void encode(RexNode expression, @Nullable RelDataType literalTargetType, ImmutableBitSet dictionaryEncodedColumns, StringBuilder builder) {
+        if (expression instanceof RexLiteral literal)
+            encode(literal, literalTargetType, builder);
+
+        else if (expression instanceof RexCall call)
+            encode(call, dictionaryEncodedColumns, builder);
+
+        else
+            // Input references and the remaining expression types are already in the engine format
+            builder.append(expression);
+    }
+
+    private static void encode(RexCall call, ImmutableBitSet dictionaryEncodedColumns, StringBuilder builder) {
+        List<RexNode> operands = call.getOperands();
+
+        // Literals are converted to the representation of the column they are compared or combined with
+        // The literal operands of multiplications and divisions have no target type and keep their own scale
+        RelDataType literalTargetType = null;
+        if (isScaleAligningCall(call)) {
+            for (RexNode operand : operands) {
+                if (!(operand instanceof RexLiteral)) {
+                    literalTargetType = operand.getType();
+                    break;
+                }
+            }
+        }
+
+        // Output the call in the same form as its Calcite digest
+        // Form: {operator}({operand}, {operand}, ...)[:{type} for casts]
+        if (isDictionaryCodeComparison(call, dictionaryEncodedColumns))
+            builder.append(call.getKind() == SqlKind.EQUALS ? "DICT_EQUALS" : "DICT_NOT_EQUALS");
+        else if (isDictionaryCodeMembershipTest(call, dictionaryEncodedColumns))
+            builder.append("DICT_").append(call.getOperator().getName());
+        else
+            builder.append(call.getOperator().getName());
+        builder.append('(');
+
+        int numberOfOperands = operands.size();
+        for (int i = 0; i < numberOfOperands; i++) {
+            encode(operands.get(i), literalTargetType, dictionaryEncodedColumns, builder);
+
+            if (i != numberOfOperands - 1)
+                builder.append(", ");
+        }
+
+        builder.append(')');
+
+        if (call.getKind() == SqlKind.CAST) {
+            builder.append(':');
+            builder.append(call.getType().getFullTypeString());
+        }
+    }
+
+    /**
+     * Method which checks whether a call requires its operands to be at the same scale, so that its
+     * literal operands are converted to the representation of its other operands.
+     */
+    private static boolean isScaleAligningCall(RexCall call) {
+        return SqlKind.COMPARISON.contains(call.getKind())
+                || call.getKind() == SqlKind.PLUS
+                || call.getKind() == SqlKind.MINUS
+                || VALUE_SET_OPERATORS.contains(call.getOperator());
+    }
+
+    /**
+     * Method which checks whether a call is an equality comparison between a dictionary-encoded input
+     * column and a literal, which can be evaluated on the dictionary codes of the column.
+     */
+    private static boolean isDictionaryCodeComparison(RexCall call, ImmutableBitSet dictionaryEncodedColumns) {
+        if (call.getKind() != SqlKind.EQUALS && call.getKind() != SqlKind.NOT_EQUALS)
+            return false;
+
+        RexNode lhs = call.getOperands().get(0);
+        RexNode rhs = call.getOperands().get(1);
+        return (lhs instanceof RexInputRef lhsRef && dictionaryEncodedColumns.get(lhsRef.getIndex()) && rhs instanceof RexLiteral)
+                || (rhs instanceof RexInputRef rhsRef && dictionaryEncodedColumns.get(rhsRef.getIndex()) && lhs instanceof RexLiteral);
+    }
+
+    /**
+     * Method which checks whether a call is a set membership test of a dictionary-encoded input column,
+     * which can be evaluated on the dictionary codes of the column.
+     */
+    private static boolean isDictionaryCodeMembershipTest(RexCall call, ImmutableBitSet dictionaryEncodedColumns) {
+        return VALUE_SET_OPERATORS.contains(call.getOperator())
+                && call.getOperands().get(0) instanceof RexInputRef operandRef
+                && dictionaryEncodedColumns.get(operandRef.getIndex());
+    }
+
+    private static void encode(RexLiteral literal, @Nullable RelDataType targetType, StringBuilder builder) {
+        if (literal.isNull()) {
+            builder.append(literal);
+            return;
+        }
+
+        SqlTypeName literalTypeName = literal.getType().getSqlTypeName();
+        SqlTypeName targetTypeName = targetType == null ? null : targetType.getSqlTypeName();
+
+        if (literalTypeName == SqlTypeName.DATE) {
+            // Form: {days since epoch}
+            builder.append(literal.getValueAs(Integer.class));
+
+        } else if (targetTypeName == SqlTypeName.DECIMAL && SqlTypeUtil.isExactNumeric(literal.getType())) {
+            encodeDecimal(literal, targetType.getScale(), builder);
+
+        } else if (literalTypeName == SqlTypeName.DECIMAL) {
+            encodeDecimal(literal, null, builder);
+
+        } else if (literalTypeName == SqlTypeName.CHAR && targetTypeName == SqlTypeName.CHAR) {
+            encodeChar(literal, targetType.getPrecision(), builder);
+
+        } else {
+            builder.append(literal);
+        }
+    }
+
+    private static void encodeChar(RexLiteral literal, int columnWidth, StringBuilder builder) {
+        byte[] literalBytes = literal.getValueAs(String.class).getBytes(StandardCharsets.UTF_8);
+
+        // Trailing spaces beyond the column width do not change the comparison with the space-padded column values
+        int literalLength = literalBytes.length;
+        while (literalLength > columnWidth && literalBytes[literalLength - 1] == ' ')
+            literalLength--;
+
+        // Form: {Calcite digest}, for literals that do not fit the column width
+        if (literalLength > columnWidth) {
+            builder.append(literal);
+            return;
+        }
+
+        // Form: X'{hexadecimal bytes padded with spaces to the column width}'
+        byte[] columnBytes = Arrays.copyOf(literalBytes, columnWidth);
+        Arrays.fill(columnBytes, literalLength, columnWidth, (byte) ' ');
+
+        builder.append("X'");
+        builder.append(HEX_FORMAT.formatHex(columnBytes));
+        builder.append('\'');
+    }
+
+    private static void encodeDecimal(RexLiteral literal, @Nullable Integer columnScale, StringBuilder builder) {
+        BigDecimal value = literal.getValueAs(BigDecimal.class);
+        assert value != null;
+
+        // Form: {unscaled value at the column scale}
+        if (columnScale != null) {
+            try {
+                builder.append(value.setScale(columnScale).unscaledValue().longValueExact());
+                return;
+            } catch (ArithmeticException e) {
+                // The literal cannot be represented exactly at the scale of the column
+            }
+        }
+
+        // Form: {unscaled value}:DECIMAL({precision}, {scale}), at the scale of the literal itself
+        int literalScale = Math.max(literal.getType().getScale(), 0);
+        builder.append(value.setScale(literalScale).unscaledValue());
+        builder.append(":DECIMAL(");
+        builder.append(literal.getType().getPrecision());
+        builder.append(", ");
+        builder.append(literalScale);
+        builder.append(')');
+    }
+
+    /**
+     * {@link RexShuttle} which expands search arguments into comparisons, except for search arguments
+     * that include or exclude at least {@link #VALUE_SET_MINIMUM_SIZE} individual values, which are
+     * rewritten into set membership tests.
+     */
+    private static final class SearchExpandingShuttle extends RexShuttle {
+
+        private final RexBuilder rexBuilder;
+
+        private SearchExpandingShuttle(RexBuilder rexBuilder) {
+            this.rexBuilder = rexBuilder;
+        }
+
+        @Override public RexNode visitCall(RexCall call) {
+            if (call.getKind() != SqlKind.SEARCH)
+                return super.visitCall(call);
+
+            RexLiteral searchLiteral = (RexLiteral) call.getOperands().get(1);
+            Sarg<?> sarg = searchLiteral.getValueAs(Sarg.class);
+            assert sarg != null;
+
+            // Null values would need to be matched separately, so only a plain set of values can become a set membership test
+            boolean isValueSet = sarg.isPoints() || sarg.isComplementedPoints();
+            if (!isValueSet || sarg.nullAs != RexUnknownAs.UNKNOWN)
+                return RexUtil.expandSearch(this.rexBuilder, null, call);
+
+            List<RexNode> operands = new ArrayList<>();
+            operands.add(call.getOperands().get(0).accept(this));
+            addValues(sarg.isPoints() ? sarg : sarg.negate(), searchLiteral.getType(), operands);
+            if (operands.size() - 1 < VALUE_SET_MINIMUM_SIZE)
+                return RexUtil.expandSearch(this.rexBuilder, null, call);
+
+            return this.rexBuilder.makeCall(call.getType(), sarg.isPoints() ? IN_SET : NOT_IN_SET, operands);
+        }
+
+        private <C extends Comparable<C>> void addValues(Sarg<C> points, RelDataType type, List<RexNode> values) {
+            for (Range<C> point : points.rangeSet.asRanges())
+                values.add(this.rexBuilder.makeLiteral(point.lowerEndpoint(), type, true, true));
+        }
+
+    }
+
+}
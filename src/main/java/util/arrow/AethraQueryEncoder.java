@@ -1,31 +1,59 @@
 package util.arrow;
 
+import calcite.metadata.AethraRelMdCollation;
+import calcite.metadata.SubplanFingerprint;
 import calcite.operators.LogicalArrowTableScan;
 import org.apache.calcite.plan.RelOptTable;
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.core.AggregateCall;
+import org.apache.calcite.rel.core.JoinInfo;
 import org.apache.calcite.rel.core.JoinRelType;
+import org.apache.calcite.rel.externalize.RelWriterImpl;
 import org.apache.calcite.rel.logical.LogicalAggregate;
 import org.apache.calcite.rel.logical.LogicalFilter;
 import org.apache.calcite.rel.logical.LogicalJoin;
 import org.apache.calcite.rel.logical.LogicalProject;
+import org.apache.calcite.rel.logical.LogicalValues;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
 import org.apache.calcite.rex.RexCall;
 import org.apache.calcite.rex.RexInputRef;
 import org.apache.calcite.rex.RexNode;
-import org.apache.calcite.rex.RexUtil;
+import org.apache.calcite.sql.SqlExplainLevel;
 import org.apache.calcite.sql.SqlKind;
 import org.apache.calcite.util.ImmutableBitSet;
 import org.apache.calcite.util.ImmutableIntList;
-
+import org.apache.calcite.util.Pair;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Class for encoding an optimised {@link RelNode} query plan into the Aethra Engine Plan Format.
+ * Each operator line ends with the estimates of the planner for that operator, which the engine can
+ * use for sizing its hash tables and output buffers up front.
+ * Form of the estimates: {row count};{distinct keys per keyed input separated by commas};{average row width in bytes}
+ * The distinct keys are given for the group-by columns of a hash aggregation and for the join columns
+ * of either side of a hash join, and are left empty for the other operators. Estimates that are not
+ * available are left empty as well.
+ * The operator lines are followed by a runtime filter line for each hash join with a selective build side.
  */
 public class AethraQueryEncoder {
 
     private static final int expectedPlanLength = 1024; // TODO: pick appropriate value
 
+    /**
+     * The maximum fraction of its original rows that the build side of a hash join may retain for a
+     * runtime filter to be emitted for the join. For less selective build sides, testing the filter in
+     * the probe-side scan costs more than dropping the few non-matching rows saves.
+     */
+    private static final double RUNTIME_FILTER_MAX_BUILD_FRACTION = 0.5;
+
     /**
      * Method which translates the provided query plan into the Aethra Engine Plan Format.
      * @param queryRoot The query to translate.
@@ -33,37 +61,92 @@ public class AethraQueryEncoder {
      */
     public static String encode(RelNode queryRoot) {
         StringBuilder builder = new StringBuilder(expectedPlanLength);
-        int currentLineIndex = 0;
-        currentLineIndex = encode(queryRoot, builder, currentLineIndex);
+        encodePlan(queryRoot, builder, new IdentityHashMap<>());
         return builder.toString();
     }
 
-    private static int encode(RelNode operator, StringBuilder builder, int currentLineIndex) {
+    /**
+     * Method which appends the lines of a query plan in the Aethra Engine Plan Format to a builder.
+     * @param queryRoot The query to translate.
+     * @param builder The builder to append the lines of the query plan to.
+     * @param lineIndices The map to which the line index of each operator of the query plan is added.
+     */
+    static void encodePlan(RelNode queryRoot, StringBuilder builder, Map<RelNode, Integer> lineIndices) {
+        int currentLineIndex = 0;
+        currentLineIndex = encode(queryRoot, builder, lineIndices, currentLineIndex);
+        appendRuntimeFilters(queryRoot, builder, lineIndices);
+    }
+
+    /**
+     * Method which describes the provided query plan in a human-readable form, including the estimates
+     * of the planner which are encoded into the Aethra Engine Plan Format for each operator.
+     * @param queryRoot The query to describe.
+     * @return The string containing the description of the query plan.
+     */
+    public static String explain(RelNode queryRoot) {
+        StringWriter stringWriter = new StringWriter(expectedPlanLength);
+        queryRoot.explain(new EstimatesExplainWriter(new PrintWriter(stringWriter)));
+        return stringWriter.toString();
+    }
+
+    /**
+     * {@link RelWriterImpl} which extends the description of each operator with the estimates of the planner.
+     */
+    private static final class EstimatesExplainWriter extends RelWriterImpl {
+
+        private EstimatesExplainWriter(PrintWriter printWriter) {
+            super(printWriter, SqlExplainLevel.EXPPLAN_ATTRIBUTES, false);
+        }
+
+        @Override protected void explain_(RelNode rel, List<Pair<String, @Nullable Object>> values) {
+            RelMetadataQuery mq = rel.getCluster().getMetadataQuery();
+
+            List<Pair<String, @Nullable Object>> extendedValues = new ArrayList<>(values);
+            extendedValues.add(Pair.of("rows", mq.getRowCount(rel)));
+            for (Pair<RelNode, ImmutableBitSet> keyedInput : getKeyedInputs(rel))
+                extendedValues.add(Pair.of("distinctKeys" + keyedInput.right, mq.getDistinctRowCount(keyedInput.left, keyedInput.right, null)));
+            extendedValues.add(Pair.of("rowWidth", mq.getAverageRowSize(rel)));
+            extendedValues.add(Pair.of("fingerprint", SubplanFingerprint.format(SubplanFingerprint.of(rel))));
+
+            super.explain_(rel, extendedValues);
+        }
+
+    }
+
+    private static int encode(RelNode operator, StringBuilder builder, Map<RelNode, Integer> lineIndices, int currentLineIndex) {
         // Forward the call to the appropriate operator encoder
         if (operator instanceof LogicalArrowTableScan lt)
-            currentLineIndex = encode(lt, builder, currentLineIndex);
+            currentLineIndex = encode(lt, builder, lineIndices, currentLineIndex);
 
         else if (operator instanceof LogicalAggregate la)
-            currentLineIndex = encode(la, builder, currentLineIndex);
+            currentLineIndex = encode(la, builder, lineIndices, currentLineIndex);
 
         else if (operator instanceof LogicalFilter lf)
-            currentLineIndex = encode(lf, builder, currentLineIndex);
+            currentLineIndex = encode(lf, builder, lineIndices, currentLineIndex);
 
         else if (operator instanceof LogicalJoin lj)
-            currentLineIndex = encode(lj, builder, currentLineIndex);
+            currentLineIndex = encode(lj, builder, lineIndices, currentLineIndex);
 
         else if (operator instanceof LogicalProject lp)
-            currentLineIndex = encode(lp, builder, currentLineIndex);
+            currentLineIndex = encode(lp, builder, lineIndices, currentLineIndex);
+
+        else if (operator instanceof LogicalValues lv)
+            currentLineIndex = encode(lv, builder, lineIndices, currentLineIndex);
 
         else
             throw new UnsupportedOperationException("The current operator type cannot be encoded: " + operator.getClass());
 
+        lineIndices.put(operator, currentLineIndex);
         return currentLineIndex;
     }
 
-    private static int encode(LogicalArrowTableScan scan, StringBuilder builder, int currentLineIndex) {
+    private static int encode(LogicalArrowTableScan scan, StringBuilder builder, Map<RelNode, Integer> lineIndices, int currentLineIndex) {
         // Output the scan node
-        // Line form: S;{table name};{boolean indicating if columns are projected};{projected column indices separated by commas}\n
+        // Line form: S;{table name};{boolean indicating if columns are projected};{projected column indices separated by commas};{arrow files to read separated by commas};{late column indices separated by commas};{subplan fingerprint};{estimates}\n
+        // Projected column indices at or beyond the column count of the arrow files refer to partition columns,
+        // whose values follow from the partition directories of the files
+        // Late columns are indices into the projected columns, which the engine only fetches for the rows that survive
+        // the selective operators above the scan
         builder.append("S;");
 
         RelOptTable table = scan.getTable();
@@ -87,13 +170,111 @@ public class AethraQueryEncoder {
             if (i != projectedColumnsCount - 1)
                 builder.append(',');
         }
+        builder.append(';');
+
+        List<File> arrowFiles = arrowTable.getArrowFiles(scan.selectedPartitions);
+        int numberOfArrowFiles = arrowFiles.size();
+        for (int i = 0; i < numberOfArrowFiles; i++) {
+            builder.append(arrowFiles.get(i).getPath());
+
+            if (i != numberOfArrowFiles - 1)
+                builder.append(',');
+        }
+        builder.append(';');
+
+        int[] lateColumns = scan.lateColumns.toArray();
+        for (int i = 0; i < lateColumns.length; i++) {
+            builder.append(lateColumns[i]);
+
+            if (i != lateColumns.length - 1)
+                builder.append(',');
+        }
+
+        appendFingerprint(scan, builder);
+        appendEstimates(scan, builder);
+        builder.append('\n');
+
+        return currentLineIndex;
+    }
 
+    private static int encode(LogicalValues values, StringBuilder builder, Map<RelNode, Integer> lineIndices, int currentLineIndex) {
+        // Only empty relations are produced by the planner, namely when a predicate is reduced to a constant false
+        if (!values.getTuples().isEmpty())
+            throw new UnsupportedOperationException("The Aethra Engine only supports empty value relations");
+
+        // Output the empty relation node
+        // Line form: V;{number of columns};{subplan fingerprint};{estimates}\n
+        builder.append("V;");
+        builder.append(values.getRowType().getFieldCount());
+        appendFingerprint(values, builder);
+        appendEstimates(values, builder);
         builder.append('\n');
 
         return currentLineIndex;
     }
 
-    private static int encode(LogicalAggregate aggregate, StringBuilder builder, int currentLineIndex) {
+    /**
+     * Appends the fingerprint of the subplan rooted at an operator to the line of that operator, which
+     * the engine uses for reporting the cardinalities it observes back to the planner.
+     */
+    private static void appendFingerprint(RelNode operator, StringBuilder builder) {
+        builder.append(';');
+        builder.append(SubplanFingerprint.format(SubplanFingerprint.of(operator)));
+    }
+
+    /**
+     * Appends the estimates of the planner for an operator to the line of that operator.
+     */
+    private static void appendEstimates(RelNode operator, StringBuilder builder) {
+        RelMetadataQuery mq = operator.getCluster().getMetadataQuery();
+
+        builder.append(';');
+        appendEstimate(mq.getRowCount(operator), builder);
+        builder.append(';');
+
+        List<Pair<RelNode, ImmutableBitSet>> keyedInputs = getKeyedInputs(operator);
+        int numberOfKeyedInputs = keyedInputs.size();
+        for (int i = 0; i < numberOfKeyedInputs; i++) {
+            Pair<RelNode, ImmutableBitSet> keyedInput = keyedInputs.get(i);
+            appendEstimate(mq.getDistinctRowCount(keyedInput.left, keyedInput.right, null), builder);
+
+            if (i != numberOfKeyedInputs - 1)
+                builder.append(',');
+        }
+        builder.append(';');
+
+        appendEstimate(mq.getAverageRowSize(operator), builder);
+    }
+
+    private static void appendEstimate(@Nullable Double estimate, StringBuilder builder) {
+        if (estimate != null && !estimate.isNaN() && !estimate.isInfinite())
+            builder.append((long) Math.ceil(estimate));
+    }
+
+    /**
+     * Method which determines the inputs of an operator that are hashed on a set of key columns.
+     * Streaming aggregations and merge joins do not hash their inputs, and thus have no keyed inputs.
+     * @param operator The operator to determine the keyed inputs for.
+     * @return The inputs of the operator with the key columns of each input, in the order of the inputs.
+     */
+    private static List<Pair<RelNode, ImmutableBitSet>> getKeyedInputs(RelNode operator) {
+        RelMetadataQuery mq = operator.getCluster().getMetadataQuery();
+
+        if (operator instanceof LogicalAggregate aggregate && !aggregate.getGroupSet().isEmpty()
+                && AethraRelMdCollation.streamingAggregationCollations(aggregate, mq).isEmpty())
+            return List.of(Pair.of(aggregate.getInput(), aggregate.getGroupSet()));
+
+        if (operator instanceof LogicalJoin join && !AethraRelMdCollation.isMergeJoin(join, mq)) {
+            JoinInfo joinInfo = join.analyzeCondition();
+            return List.of(
+                    Pair.of(join.getLeft(), ImmutableBitSet.of(joinInfo.leftKeys)),
+                    Pair.of(join.getRight(), ImmutableBitSet.of(joinInfo.rightKeys)));
+        }
+
+        return List.of();
+    }
+
+    private static int encode(LogicalAggregate aggregate, StringBuilder builder, Map<RelNode, Integer> lineIndices, int currentLineIndex) {
         // Check pre-conditions
         if (aggregate.getGroupSets().size() != 1)
             throw new UnsupportedOperationException(
@@ -105,12 +286,14 @@ public class AethraQueryEncoder {
                         "AggregationOperator does not support DISTINCT keyword");
 
         // First translate the input of the logical aggregate
-        int lineIndexForInput = encode(aggregate.getInput(), builder, currentLineIndex);
+        int lineIndexForInput = encode(aggregate.getInput(), builder, lineIndices, currentLineIndex);
         int lineIndexForAggregate = lineIndexForInput + 1;
 
         // Then output the aggregate node
-        // Line form: A;{input node line index};{possible group-by column indides};{aggregation expressions separated by comma's}
-        builder.append("A;");
+        // Aggregates over an input which is sorted on the group-by columns are evaluated in a streaming fashion without a hash table
+        // Line form: {A for a hash aggregation, SA for a streaming aggregation};{input node line index};{possible group-by column indides};{aggregation expressions separated by comma's};{dictionary-encoded group-by column indices};{subplan fingerprint};{estimates}\n
+        boolean isStreamingAggregation = !AethraRelMdCollation.streamingAggregationCollations(aggregate, aggregate.getCluster().getMetadataQuery()).isEmpty();
+        builder.append(isStreamingAggregation ? "SA;" : "A;");
         builder.append(lineIndexForInput);
         builder.append(';');
 
@@ -135,33 +318,51 @@ public class AethraQueryEncoder {
             if (i != numberOfAggCalls - 1)
                 builder.append(',');
         }
+        builder.append(';');
+
+        // Mark the group-by columns that can be grouped on their dictionary codes
+        ImmutableBitSet dictionaryGroupBySet = groupBySet.intersect(ArrowColumnOrigins.dictionaryEncodedColumns(aggregate.getInput()));
+        int numberOfDictionaryGroupByKeys = dictionaryGroupBySet.cardinality();
+        if (numberOfDictionaryGroupByKeys > 0) {
+            int[] dictionaryGroupByColumns = dictionaryGroupBySet.toArray();
+            for (int i = 0; i < numberOfDictionaryGroupByKeys; i++) {
+                builder.append(dictionaryGroupByColumns[i]);
+
+                if (i != numberOfDictionaryGroupByKeys - 1)
+                    builder.append(',');
+            }
+        }
 
+        appendFingerprint(aggregate, builder);
+        appendEstimates(aggregate, builder);
         builder.append('\n');
 
         return lineIndexForAggregate;
     }
 
-    private static int encode(LogicalFilter filter, StringBuilder builder, int currentLineIndex) {
+    private static int encode(LogicalFilter filter, StringBuilder builder, Map<RelNode, Integer> lineIndices, int currentLineIndex) {
         // First translate the input of the logical filter
-        int lineIndexForInput = encode(filter.getInput(), builder, currentLineIndex);
+        int lineIndexForInput = encode(filter.getInput(), builder, lineIndices, currentLineIndex);
         int lineIndexForFilter = lineIndexForInput + 1;
 
-        // Expand the search operator
-        RexNode filterCondition = filter.getCondition();
-        RexNode expandedCondition = RexUtil.expandSearch(filter.getCluster().getRexBuilder(), null, filterCondition);
-
         // Then output the filter node
-        // Line form: F;{input node line index};{condition}\n
+        // Line form: F;{input node line index};{condition};{subplan fingerprint};{estimates}\n
         builder.append("F;");
         builder.append(lineIndexForInput);
         builder.append(';');
-        builder.append(expandedCondition);
+        AethraExpressionEncoder.encode(
+                filter.getCondition(),
+                filter.getCluster().getRexBuilder(),
+                ArrowColumnOrigins.dictionaryEncodedColumns(filter.getInput()),
+                builder);
+        appendFingerprint(filter, builder);
+        appendEstimates(filter, builder);
         builder.append('\n');
 
         return lineIndexForFilter;
     }
 
-    private static int encode(LogicalJoin join, StringBuilder builder, int currentLineIndex) {
+    private static int encode(LogicalJoin join, StringBuilder builder, Map<RelNode, Integer> lineIndices, int currentLineIndex) {
         // Check pre-conditions
         if (join.getJoinType() != JoinRelType.INNER)
             throw new UnsupportedOperationException("JoinOperator currently only supports inner joins");
@@ -196,13 +397,15 @@ public class AethraQueryEncoder {
         }
 
         // First translate the inputs of the logical join
-        int lineIndexForLeftInput = encode(join.getLeft(), builder, currentLineIndex);
-        int lineIndexForRightInput = encode(join.getRight(), builder, lineIndexForLeftInput + 1);
+        int lineIndexForLeftInput = encode(join.getLeft(), builder, lineIndices, currentLineIndex);
+        int lineIndexForRightInput = encode(join.getRight(), builder, lineIndices, lineIndexForLeftInput + 1);
         int lineIndexForJoin = lineIndexForRightInput + 1;
 
         // Then output the join node
-        // Line form: J;{left input node line index};{right input node line index};{left_column_eq_index};{right_column_eq_index}\n
-        builder.append("J;");
+        // Joins over inputs which are both sorted on the join columns are evaluated as merge join without a hash table
+        // Line form: {J for a hash join, MJ for a merge join};{left input node line index};{right input node line index};{left_column_eq_index};{right_column_eq_index};{subplan fingerprint};{estimates}\n
+        boolean isMergeJoin = AethraRelMdCollation.isMergeJoin(join, join.getCluster().getMetadataQuery());
+        builder.append(isMergeJoin ? "MJ;" : "J;");
         builder.append(lineIndexForLeftInput);
         builder.append(';');
         builder.append(lineIndexForRightInput);
@@ -210,25 +413,79 @@ public class AethraQueryEncoder {
         builder.append(firstRef.getIndex());
         builder.append(";");
         builder.append(secondRef.getIndex());
+        appendFingerprint(join, builder);
+        appendEstimates(join, builder);
         builder.append('\n');
 
         return lineIndexForJoin;
     }
 
-    private static int encode(LogicalProject project, StringBuilder builder, int currentLineIndex) {
+    private static int encode(LogicalProject project, StringBuilder builder, Map<RelNode, Integer> lineIndices, int currentLineIndex) {
         // First translate the input of the logical project
-        int lineIndexForInput = encode(project.getInput(), builder, currentLineIndex);
+        int lineIndexForInput = encode(project.getInput(), builder, lineIndices, currentLineIndex);
         int lineIndexForProject = lineIndexForInput + 1;
 
         // Then, output the project node
-        // Line form: P;{input node line index};[{projection expressions}]\n
+        // Line form: P;{input node line index};[{projection expressions}];{subplan fingerprint};{estimates}\n
         builder.append("P;");
         builder.append(lineIndexForInput);
         builder.append(';');
-        builder.append(project.getProjects());
+        AethraExpressionEncoder.encode(
+                project.getProjects(),
+                project.getCluster().getRexBuilder(),
+                ArrowColumnOrigins.dictionaryEncodedColumns(project.getInput()),
+                builder);
+        appendFingerprint(project, builder);
+        appendEstimates(project, builder);
         builder.append('\n');
 
         return lineIndexForProject;
     }
 
+    /**
+     * Appends a runtime filter descriptor for each hash join in a query plan whose build side retains
+     * only a small fraction of its original rows. The engine builds a Bloom filter over the build-side
+     * join keys, sized by the estimated number of distinct keys, and uses it in the probe-side scan
+     * producing the probe join column to drop the rows that cannot find a match, before they reach the join.
+     * As the left input of a hash join is its build side, the probe side is its right input.
+     * Line form: R;{join line index};{probe-side scan line index};{probe column index in the output of the scan};{estimated distinct build keys}\n
+     */
+    private static void appendRuntimeFilters(RelNode operator, StringBuilder builder, Map<RelNode, Integer> lineIndices) {
+        for (RelNode input : operator.getInputs())
+            appendRuntimeFilters(input, builder, lineIndices);
+
+        if (!(operator instanceof LogicalJoin join))
+            return;
+
+        RelMetadataQuery mq = join.getCluster().getMetadataQuery();
+        if (AethraRelMdCollation.isMergeJoin(join, mq))
+            return;
+
+        // Only filter the probe side if the build side is selective
+        Double buildFraction = mq.getPercentageOriginalRows(join.getLeft());
+        if (buildFraction == null || buildFraction > RUNTIME_FILTER_MAX_BUILD_FRACTION)
+            return;
+
+        // Find the scan producing the probe join column, which is where the runtime filter is applied
+        JoinInfo joinInfo = join.analyzeCondition();
+        ArrowColumnOrigins.Origin probeOrigin = ArrowColumnOrigins.trace(join.getRight(), joinInfo.rightKeys.get(0));
+        if (probeOrigin == null)
+            return;
+
+        ImmutableBitSet buildKey = ImmutableBitSet.of(joinInfo.leftKeys.get(0));
+        Double buildKeyCount = mq.getDistinctRowCount(join.getLeft(), buildKey, null);
+        if (buildKeyCount == null)
+            buildKeyCount = mq.getRowCount(join.getLeft());
+
+        builder.append("R;");
+        builder.append(lineIndices.get(join));
+        builder.append(';');
+        builder.append(lineIndices.get(probeOrigin.scan()));
+        builder.append(';');
+        builder.append(probeOrigin.scan().projects.indexOf(probeOrigin.tableColumn()));
+        builder.append(';');
+        appendEstimate(buildKeyCount, builder);
+        builder.append('\n');
+    }
+
 }
@@ -0,0 +1,110 @@
+package util.arrow;
+
+import calcite.operators.LogicalArrowTableScan;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.logical.LogicalAggregate;
+import org.apache.calcite.rel.logical.LogicalFilter;
+import org.apache.calcite.rel.logical.LogicalJoin;
+import org.apache.calcite.rel.logical.LogicalProject;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.util.ImmutableBitSet;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Helper class for tracing the columns of a query plan back to the {@link LogicalArrowTableScan} they
+ * originate from. Unlike {@link org.apache.calcite.rel.metadata.RelMdColumnOrigins}, this takes the
+ * projections embedded in the scan into account, and only follows columns that are passed through
+ * the plan unmodified.
+ */
+public final class ArrowColumnOrigins {
+
+    private ArrowColumnOrigins() {
+
+    }
+
+    /**
+     * Record describing the origin of a column in a query plan.
+     * @param scan The {@link LogicalArrowTableScan} that produces the column.
+     * @param tableColumn The index of the column in the table read by {@code scan}.
+     */
+    public record Origin(LogicalArrowTableScan scan, int tableColumn) {
+
+        /**
+         * Method to obtain the table the column originates from.
+         * @return The {@link ArrowTable} read by the scan producing the column.
+         */
+        public ArrowTable table() {
+            ArrowTable arrowTable = this.scan.getTable().unwrap(ArrowTable.class);
+            assert arrowTable != null;
+            return arrowTable;
+        }
+
+    }
+
+    /**
+     * Method which traces a column of an operator back to the scan it originates from.
+     * @param operator The operator producing the column.
+     * @param column The index of the column in the output of {@code operator}.
+     * @return The origin of the column, or {@code null} if the column is computed by the plan.
+     */
+    public static @Nullable Origin trace(RelNode operator, int column) {
+        RelNode currentOperator = operator;
+        int currentColumn = column;
+
+        while (true) {
+            if (currentOperator instanceof LogicalArrowTableScan scan)
+                return new Origin(scan, scan.projects.get(currentColumn));
+
+            else if (currentOperator instanceof LogicalFilter filter)
+                currentOperator = filter.getInput();
+
+            else if (currentOperator instanceof LogicalProject project) {
+                RexNode projection = project.getProjects().get(currentColumn);
+                if (!(projection instanceof RexInputRef projectedInputRef))
+                    return null;
+
+                currentOperator = project.getInput();
+                currentColumn = projectedInputRef.getIndex();
+
+            } else if (currentOperator instanceof LogicalJoin join) {
+                int leftFieldCount = join.getLeft().getRowType().getFieldCount();
+                if (currentColumn < leftFieldCount) {
+                    currentOperator = join.getLeft();
+                } else {
+                    currentOperator = join.getRight();
+                    currentColumn -= leftFieldCount;
+                }
+
+            } else if (currentOperator instanceof LogicalAggregate aggregate) {
+                if (currentColumn >= aggregate.getGroupCount())
+                    return null;
+
+                currentOperator = aggregate.getInput();
+                currentColumn = aggregate.getGroupSet().nth(currentColumn);
+
+            } else
+                return null;
+        }
+    }
+
+    /**
+     * Method which determines the output columns of an operator which are dictionary-encoded columns
+     * of the table they originate from.
+     * @param operator The operator to determine the dictionary-encoded columns for.
+     * @return The indices of the dictionary-encoded output columns of {@code operator}.
+     */
+    public static ImmutableBitSet dictionaryEncodedColumns(RelNode operator) {
+        ImmutableBitSet.Builder dictionaryEncodedColumns = ImmutableBitSet.builder();
+
+        int fieldCount = operator.getRowType().getFieldCount();
+        for (int i = 0; i < fieldCount; i++) {
+            Origin origin = trace(operator, i);
+            if (origin != null && origin.table().isDictionaryEncoded(origin.tableColumn()))
+                dictionaryEncodedColumns.set(i);
+        }
+
+        return dictionaryEncodedColumns.build();
+    }
+
+}
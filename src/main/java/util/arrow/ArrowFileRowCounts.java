@@ -0,0 +1,56 @@
+package util.arrow;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Helper class which caches the row counts of Arrow files for the lifetime of the isolate. As the schema
+ * of a database is rebuilt for every planned query, the row count of each file would otherwise be read
+ * from the headers of its record batches again for every query. A cached row count is keyed by the path
+ * of its file and is only used while the last-modified time and length of the file are unchanged, so
+ * that files which are rewritten between queries are read again.
+ */
+final class ArrowFileRowCounts {
+
+    /**
+     * Record describing the row count of an Arrow file, together with the state of the file it was read from.
+     * @param lastModified The last-modified time of the file when its row count was read.
+     * @param length The length of the file when its row count was read.
+     * @param rowCount The number of rows in the file.
+     */
+    private record CachedRowCount(long lastModified, long length, long rowCount) {
+
+    }
+
+    /**
+     * The cached row counts, keyed by the absolute path of their file.
+     */
+    private static final Map<String, CachedRowCount> ROW_COUNTS = new ConcurrentHashMap<>();
+
+    private ArrowFileRowCounts() {
+
+    }
+
+    /**
+     * Method to obtain the number of rows in an Arrow file, which is only read from the file if it
+     * has not been read before or if the file has changed since.
+     * @param arrowFile The Arrow file to obtain the number of rows of.
+     * @return The number of rows in {@code arrowFile}.
+     */
+    static long get(File arrowFile) throws IOException {
+        String path = arrowFile.getAbsolutePath();
+        long lastModified = arrowFile.lastModified();
+        long length = arrowFile.length();
+
+        CachedRowCount cachedRowCount = ROW_COUNTS.get(path);
+        if (cachedRowCount != null && cachedRowCount.lastModified() == lastModified && cachedRowCount.length() == length)
+            return cachedRowCount.rowCount();
+
+        long rowCount = ArrowFileSchemaExtractor.getRowCountFromTableFile(arrowFile);
+        ROW_COUNTS.put(path, new CachedRowCount(lastModified, length, rowCount));
+        return rowCount;
+    }
+
+}
@@ -1,10 +1,16 @@
 package util.arrow;
 
+import org.apache.arrow.flatbuf.Block;
 import org.apache.arrow.flatbuf.Footer;
+import org.apache.arrow.flatbuf.KeyValue;
+import org.apache.arrow.flatbuf.MessageHeader;
+import org.apache.arrow.flatbuf.RecordBatch;
 import org.apache.arrow.vector.ipc.InvalidArrowFileException;
 import org.apache.arrow.vector.ipc.SeekableReadChannel;
+import org.apache.arrow.vector.ipc.message.MessageMetadataResult;
 import org.apache.arrow.vector.ipc.message.MessageSerializer;
 import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -12,6 +18,8 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 import static org.apache.arrow.vector.types.pojo.Field.convertField;
 
@@ -40,50 +48,109 @@ public final class ArrowFileSchemaExtractor {
     }
 
     public static ArrayList<Field> getFieldDescriptionFromTableFile(File arrowTable) throws IOException {
+        // Return exactly the fields of the schema from the footer
+        return convertFields(readFooterSchema(arrowTable));
+    }
+
+    /**
+     * Method which extracts the fields and the custom metadata of the schema of an arrow file.
+     * @param arrowTable The arrow file to extract the schema from.
+     * @return The schema of {@code arrowTable}, including its custom metadata.
+     */
+    public static Schema getSchemaFromTableFile(File arrowTable) throws IOException {
+        org.apache.arrow.flatbuf.Schema schema = readFooterSchema(arrowTable);
+        ArrayList<Field> fields = convertFields(schema);
+
+        Map<String, String> customMetadata = new HashMap<>();
+        for (int i = 0; i < schema.customMetadataLength(); i++) {
+            KeyValue keyValue = schema.customMetadata(i);
+            customMetadata.put(keyValue.key(), keyValue.value());
+        }
+
+        return new Schema(fields, customMetadata);
+    }
+
+    private static ArrayList<Field> convertFields(org.apache.arrow.flatbuf.Schema schema) {
+        ArrayList<Field> fields = new ArrayList<>();
+        for (int i = 0; i < schema.fieldsLength(); i++) {
+            fields.add(convertField(schema.fields(i)));
+        }
+        return fields;
+    }
+
+    /**
+     * Method which determines the number of rows in an arrow file from the headers of its record
+     * batches, without reading the record batches themselves.
+     * @param arrowTable The arrow file to determine the number of rows of.
+     * @return The number of rows in {@code arrowTable}.
+     */
+    public static long getRowCountFromTableFile(File arrowTable) throws IOException {
         try (
             FileInputStream arrowTableStream = new FileInputStream(arrowTable);
             SeekableReadChannel in = new SeekableReadChannel(arrowTableStream.getChannel());
         ) {
-            // Read the raw footer data into memory
-            if (in.size() <= (MAGIC_LENGTH * 2 + 4)) {
-                throw new InvalidArrowFileException("file too small: " + in.size());
-            }
-            ByteBuffer buffer = ByteBuffer.allocate(4 + MAGIC_LENGTH);
-            long footerLengthOffset = in.size() - buffer.remaining();
-            in.setPosition(footerLengthOffset);
-            in.readFully(buffer);
-            buffer.flip();
-            byte[] array = buffer.array();
-            boolean validMagic;
-            try {
-                byte[] magicToValidate = Arrays.copyOfRange(array, 4, array.length);
-                validMagic = (boolean) VALIDATE_MAGIC_METHOD.invoke(null, magicToValidate);
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
-            if (!validMagic) {
-                throw new InvalidArrowFileException("missing Magic number " + Arrays.toString(buffer.array()));
-            }
-            int footerLength = MessageSerializer.bytesToInt(array);
-            if (footerLength <= 0 || footerLength + MAGIC_LENGTH * 2 + 4 > in.size() || footerLength > footerLengthOffset) {
-                throw new InvalidArrowFileException("invalid footer length: " + footerLength);
-            }
-            long footerOffset = footerLengthOffset - footerLength;
-            ByteBuffer footerBuffer = ByteBuffer.allocate(footerLength);
-            in.setPosition(footerOffset);
-            in.readFully(footerBuffer);
-            footerBuffer.flip();
-            Footer footerFB = Footer.getRootAsFooter(footerBuffer);
-
-            // And return exactly the schema from the footer
-            org.apache.arrow.flatbuf.Schema schema = footerFB.schema();
-            ArrayList<Field> fields = new ArrayList<>();
-            for (int i = 0; i < schema.fieldsLength(); i++) {
-                fields.add(convertField(schema.fields(i)));
+            Footer footerFB = readFooter(in);
+
+            // Sum the lengths declared in the message header of each record batch listed in the footer
+            long rowCount = 0;
+            Block block = new Block();
+            for (int i = 0; i < footerFB.recordBatchesLength(); i++) {
+                footerFB.recordBatches(block, i);
+                in.setPosition(block.offset());
+                MessageMetadataResult messageMetadata = MessageSerializer.readMessage(in);
+                if (messageMetadata == null || messageMetadata.getMessage().headerType() != MessageHeader.RecordBatch)
+                    throw new InvalidArrowFileException("missing record batch at offset " + block.offset());
+
+                RecordBatch recordBatch = (RecordBatch) messageMetadata.getMessage().header(new RecordBatch());
+                rowCount += recordBatch.length();
             }
-            return fields;
+
+            return rowCount;
+        }
+    }
+
+    private static org.apache.arrow.flatbuf.Schema readFooterSchema(File arrowTable) throws IOException {
+        try (
+            FileInputStream arrowTableStream = new FileInputStream(arrowTable);
+            SeekableReadChannel in = new SeekableReadChannel(arrowTableStream.getChannel());
+        ) {
+            // Return the schema from the footer
+            return readFooter(in).schema();
         }
+    }
 
+    private static Footer readFooter(SeekableReadChannel in) throws IOException {
+        // Read the raw footer data into memory
+        if (in.size() <= (MAGIC_LENGTH * 2 + 4)) {
+            throw new InvalidArrowFileException("file too small: " + in.size());
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(4 + MAGIC_LENGTH);
+        long footerLengthOffset = in.size() - buffer.remaining();
+        in.setPosition(footerLengthOffset);
+        in.readFully(buffer);
+        buffer.flip();
+        byte[] array = buffer.array();
+        boolean validMagic;
+        try {
+            byte[] magicToValidate = Arrays.copyOfRange(array, 4, array.length);
+            validMagic = (boolean) VALIDATE_MAGIC_METHOD.invoke(null, magicToValidate);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        if (!validMagic) {
+            throw new InvalidArrowFileException("missing Magic number " + Arrays.toString(buffer.array()));
+        }
+        int footerLength = MessageSerializer.bytesToInt(array);
+        if (footerLength <= 0 || footerLength + MAGIC_LENGTH * 2 + 4 > in.size() || footerLength > footerLengthOffset) {
+            throw new InvalidArrowFileException("invalid footer length: " + footerLength);
+        }
+        long footerOffset = footerLengthOffset - footerLength;
+        ByteBuffer footerBuffer = ByteBuffer.allocate(footerLength);
+        in.setPosition(footerOffset);
+        in.readFully(footerBuffer);
+        footerBuffer.flip();
+        Footer footerFB = Footer.getRootAsFooter(footerBuffer);
+        return footerFB;
     }
 
 }
@@ -3,21 +3,83 @@ package util.arrow;
 import org.apache.arrow.vector.types.FloatingPointPrecision;
 import org.apache.arrow.vector.types.pojo.ArrowType;
 import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
 import org.apache.calcite.jdbc.CalciteSchema;
+import org.apache.calcite.rel.RelCollation;
+import org.apache.calcite.rel.RelCollations;
+import org.apache.calcite.rel.RelFieldCollation;
 import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.rel.type.RelDataTypeField;
 import org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.calcite.util.DateString;
+import org.apache.calcite.util.ImmutableBitSet;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
 
 /**
  * Class containing functionality for building a {@link CalciteSchema} for a database that is
  * represented by a directory containing several Apache Arrow IPC files. Each file in the directory
- * will become a table in the resulting schema.
+ * will become a table in the resulting schema. Each subdirectory of the directory which contains
+ * Hive-style {@code key=value} subdirectories will become a partitioned table, whose partitions are
+ * stored in these subdirectories. Other subdirectories, and other directories inside a partitioned
+ * table, are ignored.
+ * The order in which the rows of an Arrow file are stored can be declared in the custom metadata of
+ * its schema under {@link #SORT_ORDER_METADATA_KEY}, or in a sidecar file next to it with the
+ * {@link #SORT_ORDER_FILE_EXTENSION} extension. In both cases, the sort order is a comma-separated list
+ * of column names, each optionally followed by {@code ASC} or {@code DESC}.
+ * An Arrow file with a sidecar file with the {@link #MATERIALIZATION_FILE_EXTENSION} extension is a
+ * materialization of the SQL query in that sidecar file, whose select list corresponds to the columns
+ * of the Arrow file in order.
  */
 public class ArrowSchemaBuilder {
 
+    /**
+     * Filter accepting the Arrow IPC files in a directory.
+     */
+    private static final FileFilter ARROW_FILE_FILTER = file -> file.isFile() && file.getName().endsWith(".arrow");
+
+    /**
+     * Filter accepting the Hive-style {@code key=value} partition directories in a directory.
+     */
+    private static final FileFilter PARTITION_DIRECTORY_FILTER =
+            file -> file.isDirectory() && !file.isHidden() && PartitionDirectoryName.parse(file.getName()) != null;
+
+    /**
+     * The directory value Hive uses for the partition of rows with a null partition key.
+     */
+    private static final String HIVE_DEFAULT_PARTITION = "__HIVE_DEFAULT_PARTITION__";
+
+    /**
+     * The key of the custom schema metadata entry declaring the sort order of an Arrow file.
+     */
+    private static final String SORT_ORDER_METADATA_KEY = "aethra.sort_order";
+
+    /**
+     * The extension of the sidecar file declaring the sort order of an Arrow file with the same name.
+     */
+    private static final String SORT_ORDER_FILE_EXTENSION = ".sort_order";
+
+    /**
+     * The extension of the sidecar file containing the SQL query materialized in an Arrow file with the same name.
+     */
+    private static final String MATERIALIZATION_FILE_EXTENSION = ".sql";
+
+    /**
+     * Patterns for recognising the type of partition values.
+     */
+    private static final Pattern INTEGER_PARTITION_VALUE = Pattern.compile("-?\\d{1,18}");
+    private static final Pattern DATE_PARTITION_VALUE = Pattern.compile("\\d{4}-\\d{2}-\\d{2}");
+
     /**
      * Create a schema for an Arrow database directory.
      * @param databaseDirectoryPath The directory to create the database schema from.
@@ -43,9 +105,11 @@ public class ArrowSchemaBuilder {
         // Create the root schema and type factory for the schema
         CalciteSchema databaseSchema = CalciteSchema.createRootSchema(false);
 
-        // Find all the arrow files in the directory
-        File[] arrowTableFiles = databaseDirectory.listFiles((dir, name) -> name.endsWith(".arrow"));
-        if (arrowTableFiles == null || arrowTableFiles.length == 0)
+        // Find all the arrow files and partitioned table directories in the directory
+        File[] arrowTableFiles = listFiles(databaseDirectory, ARROW_FILE_FILTER);
+        File[] partitionedTableDirectories = listFiles(databaseDirectory,
+                file -> file.isDirectory() && !file.isHidden() && isPartitionedTableDirectory(file));
+        if (arrowTableFiles.length == 0 && partitionedTableDirectories.length == 0)
             throw new IllegalStateException("Cannot create a schema for an empty database");
 
         // Add each arrow table to the schema
@@ -54,10 +118,25 @@ public class ArrowSchemaBuilder {
             databaseSchema.add(arrowTableInstance.getName(), arrowTableInstance);
         }
 
+        // Add each partitioned arrow table to the schema
+        for (File partitionedTableDirectory : partitionedTableDirectories) {
+            ArrowTable arrowTableInstance = createTableForPartitionedDirectory(partitionedTableDirectory, typeFactory);
+            databaseSchema.add(arrowTableInstance.getName(), arrowTableInstance);
+        }
+
         // Return the final schema
         return databaseSchema;
     }
 
+    /**
+     * Method which checks whether a directory represents a partitioned table.
+     * @param directory The directory to check.
+     * @return Whether {@code directory} contains at least one Hive-style {@code key=value} partition directory.
+     */
+    static boolean isPartitionedTableDirectory(File directory) {
+        return listFiles(directory, PARTITION_DIRECTORY_FILTER).length > 0;
+    }
+
     /**
      * Create a {@link ArrowTable} instance representing the schema of a specific Arrow table.
      * @param arrowTable The {@link File} containing the Arrow table.
@@ -66,27 +145,351 @@ public class ArrowSchemaBuilder {
      */
     private static ArrowTable createTableForArrowFile(File arrowTable, RelDataTypeFactory typeFactory) {
         // Get the arrow schema from the file
-        ArrayList<Field> arrowSchemaFields;
+        Schema arrowSchema = readArrowSchema(arrowTable);
+        List<Field> arrowSchemaFields = arrowSchema.getFields();
+
+        // Create a builder for the calcite type and add each column to it
+        RelDataTypeFactory.Builder builderForTable = typeFactory.builder();
+        ImmutableBitSet dictionaryEncodedColumns = addColumns(arrowSchemaFields, builderForTable, typeFactory);
+
+        // Obtain the calcite type
+        RelDataType tableType = builderForTable.build();
+
+        // Obtain the order of the rows in the file, if it is declared
+        RelCollation collation = readCollation(arrowTable, arrowSchema, tableType);
+
+        // Obtain the query materialized in the file, if it is a materialization
+        String materializationQuery = readSidecarFile(arrowTable, MATERIALIZATION_FILE_EXTENSION);
+
+        // Construct the table instance
+        return new ArrowTable(arrowTable, tableType, dictionaryEncodedColumns, collation, materializationQuery);
+    }
+
+    /**
+     * Create a partitioned {@link ArrowTable} instance representing a directory of Arrow files which is
+     * partitioned by Hive-style {@code key=value} subdirectories. Each partition key becomes a virtual
+     * column of the table, following the columns stored in the Arrow files.
+     * @param tableDirectory The directory containing the partitions of the Arrow table.
+     * @param typeFactory The {@link RelDataTypeFactory} to use for creating the schema.
+     * @return The type representing the partitioned Arrow table.
+     */
+    private static ArrowTable createTableForPartitionedDirectory(File tableDirectory, RelDataTypeFactory typeFactory) {
+        // Collect the partitions of the table from its subdirectories
+        List<String> partitionKeys = new ArrayList<>();
+        List<List<String>> rawPartitionValues = new ArrayList<>();
+        List<List<File>> partitionFiles = new ArrayList<>();
+        collectPartitions(tableDirectory, partitionKeys, new ArrayList<>(), rawPartitionValues, partitionFiles);
+
+        if (partitionFiles.isEmpty())
+            throw new IllegalStateException("Cannot create a table for partitioned directory '" + tableDirectory.getPath() + "' without any arrow files");
+
+        for (List<String> rawValues : rawPartitionValues) {
+            if (rawValues.size() != partitionKeys.size())
+                throw new IllegalStateException("Partitioned directory '" + tableDirectory.getPath() + "' does not use the same partition keys for all its partitions");
+        }
+
+        // Get the arrow schema from the first file, as all partitions share the same schema
+        ArrayList<Field> arrowSchemaFields = readArrowSchemaFields(partitionFiles.get(0).get(0));
+
+        // Create a builder for the calcite type and add each stored column to it
+        RelDataTypeFactory.Builder builderForTable = typeFactory.builder();
+        ImmutableBitSet dictionaryEncodedColumns = addColumns(arrowSchemaFields, builderForTable, typeFactory);
+
+        // Add a virtual column for each partition key, typed by the values it takes
+        List<List<Object>> partitionValues = new ArrayList<>(partitionFiles.size());
+        for (int i = 0; i < partitionFiles.size(); i++)
+            partitionValues.add(new ArrayList<>(partitionKeys.size()));
+
+        for (int key = 0; key < partitionKeys.size(); key++) {
+            SqlTypeName partitionKeyType = inferPartitionKeyType(rawPartitionValues, key);
+            boolean hasDefaultPartition = false;
+
+            for (int partition = 0; partition < rawPartitionValues.size(); partition++) {
+                String rawValue = rawPartitionValues.get(partition).get(key);
+                hasDefaultPartition |= rawValue == null;
+                partitionValues.get(partition).add(parsePartitionValue(rawValue, partitionKeyType));
+            }
+
+            RelDataType columnType = typeFactory.createTypeWithNullability(typeFactory.createSqlType(partitionKeyType), hasDefaultPartition);
+            builderForTable.add(partitionKeys.get(key), columnType);
+        }
+
+        // Construct the partitions
+        List<ArrowTablePartition> partitions = new ArrayList<>(partitionFiles.size());
+        for (int i = 0; i < partitionFiles.size(); i++)
+            partitions.add(new ArrowTablePartition(partitionValues.get(i), partitionFiles.get(i)));
+
+        // Obtain the calcite type and construct the table instance
+        RelDataType tableType = builderForTable.build();
+        return new ArrowTable(tableDirectory, tableType, dictionaryEncodedColumns, partitions, arrowSchemaFields.size());
+    }
+
+    /**
+     * Method which reads the fields of the schema of an Arrow file.
+     * @param arrowFile The Arrow file to read the schema of.
+     * @return The fields of the schema of {@code arrowFile}.
+     */
+    private static ArrayList<Field> readArrowSchemaFields(File arrowFile) {
         try {
-            arrowSchemaFields = ArrowFileSchemaExtractor.getFieldDescriptionFromTableFile(arrowTable);
+            return ArrowFileSchemaExtractor.getFieldDescriptionFromTableFile(arrowFile);
         } catch (Exception e) {
-            throw new RuntimeException("Could not parse the arrow file schema for file '" + arrowTable.getPath() + "'", e);
+            throw new RuntimeException("Could not parse the arrow file schema for file '" + arrowFile.getPath() + "'", e);
         }
+    }
 
-        // Create a builder for the calcite type
-        RelDataTypeFactory.Builder builderForTable = typeFactory.builder();
+    /**
+     * Method which reads the schema of an Arrow file, including its custom metadata.
+     * @param arrowFile The Arrow file to read the schema of.
+     * @return The schema of {@code arrowFile}.
+     */
+    private static Schema readArrowSchema(File arrowFile) {
+        try {
+            return ArrowFileSchemaExtractor.getSchemaFromTableFile(arrowFile);
+        } catch (Exception e) {
+            throw new RuntimeException("Could not parse the arrow file schema for file '" + arrowFile.getPath() + "'", e);
+        }
+    }
+
+    /**
+     * Method which determines the declared order of the rows in an Arrow file. The custom metadata of
+     * the schema takes precedence over a sidecar file.
+     * @param arrowFile The Arrow file to determine the row order of.
+     * @param arrowSchema The schema of {@code arrowFile}.
+     * @param tableType The calcite type of the table represented by {@code arrowFile}.
+     * @return The collation of the rows in {@code arrowFile}, which is empty if no order is declared.
+     */
+    private static RelCollation readCollation(File arrowFile, Schema arrowSchema, RelDataType tableType) {
+        String sortOrder = arrowSchema.getCustomMetadata().get(SORT_ORDER_METADATA_KEY);
+
+        if (sortOrder == null)
+            sortOrder = readSidecarFile(arrowFile, SORT_ORDER_FILE_EXTENSION);
+
+        if (sortOrder == null)
+            return RelCollations.EMPTY;
+
+        return parseCollation(sortOrder, tableType, arrowFile);
+    }
+
+    /**
+     * Method which reads the sidecar file with a given extension next to an Arrow file.
+     * @param arrowFile The Arrow file to read the sidecar file of.
+     * @param extension The extension replacing {@code .arrow} in the name of the sidecar file.
+     * @return The contents of the sidecar file, or {@code null} if there is no such file.
+     */
+    private static @Nullable String readSidecarFile(File arrowFile, String extension) {
+        String sidecarName = arrowFile.getName().replace(".arrow", extension);
+        File sidecarFile = new File(arrowFile.getParentFile(), sidecarName);
+        if (!sidecarFile.isFile())
+            return null;
+
+        try {
+            return Files.readString(sidecarFile.toPath());
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read the sidecar file '" + sidecarFile.getPath() + "'", e);
+        }
+    }
+
+    /**
+     * Method which parses a declared sort order into a collation over the columns of a table.
+     * @param sortOrder The comma-separated column names, each optionally followed by {@code ASC} or {@code DESC}.
+     * @param tableType The calcite type of the table the sort order is declared for.
+     * @param arrowFile The Arrow file the sort order is declared for, used in error messages.
+     * @return The collation represented by {@code sortOrder}.
+     */
+    private static RelCollation parseCollation(String sortOrder, RelDataType tableType, File arrowFile) {
+        List<RelFieldCollation> fieldCollations = new ArrayList<>();
+
+        for (String sortKey : sortOrder.split(",")) {
+            String[] sortKeyParts = sortKey.trim().split("\\s+");
+            if (sortKeyParts.length == 0 || sortKeyParts[0].isEmpty())
+                continue;
+
+            RelDataTypeField column = tableType.getField(sortKeyParts[0], false, false);
+            if (column == null)
+                throw new IllegalStateException("Sort order of '" + arrowFile.getPath() + "' refers to unknown column '" + sortKeyParts[0] + "'");
+
+            RelFieldCollation.Direction direction;
+            if (sortKeyParts.length == 1 || sortKeyParts[1].equalsIgnoreCase("ASC"))
+                direction = RelFieldCollation.Direction.ASCENDING;
+            else if (sortKeyParts[1].equalsIgnoreCase("DESC"))
+                direction = RelFieldCollation.Direction.DESCENDING;
+            else
+                throw new IllegalStateException("Sort order of '" + arrowFile.getPath() + "' uses unknown direction '" + sortKeyParts[1] + "'");
+
+            fieldCollations.add(new RelFieldCollation(column.getIndex(), direction));
+        }
+
+        return RelCollations.of(fieldCollations);
+    }
+
+    /**
+     * Method which adds a column to a calcite type for each field of an Arrow schema.
+     * @param arrowSchemaFields The fields of the Arrow schema.
+     * @param builderForTable The builder for the calcite type to add the columns to.
+     * @param typeFactory The {@link RelDataTypeFactory} to use for creating the column types.
+     * @return The indices of the columns that are dictionary-encoded.
+     */
+    private static ImmutableBitSet addColumns(List<Field> arrowSchemaFields, RelDataTypeFactory.Builder builderForTable,
+                                              RelDataTypeFactory typeFactory) {
+        ImmutableBitSet.Builder dictionaryEncodedColumns = ImmutableBitSet.builder();
+
+        for (int i = 0; i < arrowSchemaFields.size(); i++) {
+            Field column = arrowSchemaFields.get(i);
+
+            // Dictionary-encoded columns have the type of their dictionary values, but are marked
+            // so that the engine can operate on the dictionary codes instead
+            if (column.getDictionary() != null)
+                dictionaryEncodedColumns.set(i);
 
-        // Add each column to the calcite type
-        for (Field column : arrowSchemaFields) {
             RelDataType columnType = typeFactory.createTypeWithNullability(arrowToSqlType(column.getType(), typeFactory), false);
             builderForTable.add(column.getName(), columnType);
         }
 
-        // Obtain the calcite type
-        RelDataType tableType = builderForTable.build();
+        return dictionaryEncodedColumns.build();
+    }
 
-        // Construct the table instance
-        return new ArrowTable(arrowTable, tableType);
+    /**
+     * Method which recursively collects the partitions in a directory of a partitioned table. A
+     * directory containing Arrow files is a partition, identified by the values of the
+     * {@code key=value} directories leading up to it. Subdirectories which are not of this form are skipped.
+     * @param directory The directory to collect the partitions from.
+     * @param partitionKeys The partition keys found so far, in order of nesting.
+     * @param currentValues The raw partition values of the directories leading up to {@code directory}.
+     * @param rawPartitionValues The list to add the raw partition values of each found partition to.
+     * @param partitionFiles The list to add the Arrow files of each found partition to.
+     */
+    private static void collectPartitions(File directory, List<String> partitionKeys, List<String> currentValues,
+                                          List<List<String>> rawPartitionValues, List<List<File>> partitionFiles) {
+        File[] arrowFiles = listFiles(directory, ARROW_FILE_FILTER);
+        if (arrowFiles.length > 0) {
+            rawPartitionValues.add(new ArrayList<>(currentValues));
+            partitionFiles.add(List.of(arrowFiles));
+        }
+
+        for (File subdirectory : listFiles(directory, PARTITION_DIRECTORY_FILTER)) {
+            PartitionDirectoryName directoryName = PartitionDirectoryName.parse(subdirectory.getName());
+            assert directoryName != null;
+
+            // Check that the partition key is consistent with the other partitions at this nesting level
+            String partitionKey = directoryName.key();
+            int nestingLevel = currentValues.size();
+            if (nestingLevel == partitionKeys.size())
+                partitionKeys.add(partitionKey);
+            else if (!partitionKeys.get(nestingLevel).equals(partitionKey))
+                throw new IllegalStateException("Partition directory '" + subdirectory.getPath() + "' uses partition key '"
+                        + partitionKey + "' instead of '" + partitionKeys.get(nestingLevel) + "'");
+
+            currentValues.add(directoryName.rawValue());
+            collectPartitions(subdirectory, partitionKeys, currentValues, rawPartitionValues, partitionFiles);
+            currentValues.remove(nestingLevel);
+        }
+    }
+
+    /**
+     * Record representing the name of a Hive-style {@code key=value} partition directory.
+     * @param key The partition key.
+     * @param rawValue The unescaped partition value, or {@code null} for the default partition.
+     */
+    record PartitionDirectoryName(String key, @Nullable String rawValue) {
+
+        /**
+         * Method which parses the name of a directory as the name of a partition directory.
+         * @param directoryName The name of the directory to parse.
+         * @return The parsed name, or {@code null} if {@code directoryName} is not of the form {@code key=value}.
+         */
+        static @Nullable PartitionDirectoryName parse(String directoryName) {
+            int separatorIndex = directoryName.indexOf('=');
+            if (separatorIndex <= 0)
+                return null;
+
+            String rawValue = unescapePartitionValue(directoryName.substring(separatorIndex + 1));
+            return new PartitionDirectoryName(
+                    directoryName.substring(0, separatorIndex),
+                    HIVE_DEFAULT_PARTITION.equals(rawValue) ? null : rawValue);
+        }
+
+    }
+
+    /**
+     * Method which determines the most specific SQL type that can represent all values of a partition key.
+     * @param rawPartitionValues The raw partition values of all partitions.
+     * @param partitionKey The index of the partition key to determine the type for.
+     * @return BIGINT if all values are integers, DATE if all values are dates, and VARCHAR otherwise.
+     */
+    static SqlTypeName inferPartitionKeyType(List<List<String>> rawPartitionValues, int partitionKey) {
+        boolean hasValues = false;
+        boolean allIntegers = true;
+        boolean allDates = true;
+
+        for (List<String> rawValues : rawPartitionValues) {
+            String rawValue = rawValues.get(partitionKey);
+            if (rawValue == null)
+                continue;
+
+            hasValues = true;
+            allIntegers &= INTEGER_PARTITION_VALUE.matcher(rawValue).matches();
+            allDates &= DATE_PARTITION_VALUE.matcher(rawValue).matches();
+        }
+
+        if (hasValues && allIntegers)
+            return SqlTypeName.BIGINT;
+        else if (hasValues && allDates)
+            return SqlTypeName.DATE;
+        else
+            return SqlTypeName.VARCHAR;
+    }
+
+    /**
+     * Method which converts a raw partition value into the representation of its partition key type.
+     * @param rawValue The raw partition value, or {@code null} for the default partition.
+     * @param partitionKeyType The type of the partition key.
+     * @return The partition value as expected by {@link ArrowTablePartition#getPartitionValue}.
+     */
+    private static @Nullable Object parsePartitionValue(@Nullable String rawValue, SqlTypeName partitionKeyType) {
+        if (rawValue == null)
+            return null;
+
+        return switch (partitionKeyType) {
+            case BIGINT -> new BigDecimal(rawValue);
+            case DATE -> new DateString(rawValue);
+            default -> rawValue;
+        };
+    }
+
+    /**
+     * Method which undoes the Hive escaping of special characters as {@code %XX} in a partition value.
+     */
+    private static String unescapePartitionValue(String escapedValue) {
+        if (escapedValue.indexOf('%') < 0)
+            return escapedValue;
+
+        StringBuilder unescapedValue = new StringBuilder(escapedValue.length());
+        for (int i = 0; i < escapedValue.length(); i++) {
+            char c = escapedValue.charAt(i);
+            if (c == '%' && i + 2 < escapedValue.length() && isHexDigit(escapedValue.charAt(i + 1)) && isHexDigit(escapedValue.charAt(i + 2))) {
+                unescapedValue.append((char) Integer.parseInt(escapedValue.substring(i + 1, i + 3), 16));
+                i += 2;
+            } else {
+                unescapedValue.append(c);
+            }
+        }
+        return unescapedValue.toString();
+    }
+
+    private static boolean isHexDigit(char c) {
+        return Character.digit(c, 16) >= 0;
+    }
+
+    /**
+     * Method which lists the files in a directory accepted by a filter, in a deterministic order.
+     */
+    private static File[] listFiles(File directory, FileFilter filter) {
+        File[] files = directory.listFiles(filter);
+        if (files == null)
+            return new File[0];
+
+        Arrays.sort(files);
+        return files;
     }
 
     /**
@@ -95,8 +498,8 @@ public class ArrowSchemaBuilder {
      * @return The {@link RelDataType} corresponding to {@code arrowType}.
      */
     private static RelDataType arrowToSqlType(ArrowType arrowType, RelDataTypeFactory typeFactory) {
-        if (arrowType instanceof ArrowType.Int)
-            return typeFactory.createSqlType(SqlTypeName.INTEGER);
+        if (arrowType instanceof ArrowType.Int arrowIntType)
+            return intToSqlType(arrowIntType, typeFactory);
 
         else if (arrowType instanceof ArrowType.FixedSizeBinary arrowFixedSizeBinaryType)
             return typeFactory.createSqlType(SqlTypeName.CHAR, arrowFixedSizeBinaryType.getByteWidth());
@@ -119,4 +522,26 @@ public class ArrowSchemaBuilder {
         else
             throw new IllegalArgumentException("The provided ArrowType is currently not supported: " + arrowType.toString());
     }
+
+    /**
+     * Method for converting an {@link ArrowType.Int} into the narrowest {@link RelDataType} that can
+     * represent all its values. As SQL has no unsigned integer types, unsigned integers are mapped to
+     * the next wider signed type.
+     * @param arrowIntType The {@link ArrowType.Int} to convert.
+     * @return The {@link RelDataType} corresponding to {@code arrowIntType}.
+     */
+    private static RelDataType intToSqlType(ArrowType.Int arrowIntType, RelDataTypeFactory typeFactory) {
+        int bitWidth = arrowIntType.getBitWidth();
+        if (!arrowIntType.getIsSigned())
+            bitWidth *= 2;
+
+        return switch (bitWidth) {
+            case 8 -> typeFactory.createSqlType(SqlTypeName.TINYINT);
+            case 16 -> typeFactory.createSqlType(SqlTypeName.SMALLINT);
+            case 32 -> typeFactory.createSqlType(SqlTypeName.INTEGER);
+            case 64 -> typeFactory.createSqlType(SqlTypeName.BIGINT);
+            case 128 -> typeFactory.createSqlType(SqlTypeName.DECIMAL, 20, 0);
+            default -> throw new IllegalArgumentException("The provided ArrowType is currently not supported: " + arrowIntType);
+        };
+    }
 }
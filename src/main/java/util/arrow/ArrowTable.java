@@ -1,18 +1,31 @@
 package util.arrow;
 
+import org.apache.calcite.rel.RelCollation;
+import org.apache.calcite.rel.RelCollations;
 import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.schema.Statistic;
+import org.apache.calcite.schema.Statistics;
 import org.apache.calcite.schema.impl.AbstractTable;
+import org.apache.calcite.util.ImmutableBitSet;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * Class representing the Arrow table contained in a specific file.
+ * Class representing the Arrow table contained in a specific file, or in a directory of Arrow files
+ * that is partitioned by Hive-style {@code key=value} subdirectories. The partition keys of a
+ * partitioned table are exposed as virtual columns following the columns stored in the files.
+ * A table can also be the materialization of a SQL query over the other tables of the database,
+ * in which case the planner may use it to answer queries that would otherwise read those tables.
  */
 public class ArrowTable extends AbstractTable {
 
     /**
-     * The Arrow file represented by {@code this}.
+     * The Arrow file, or the directory of the partitioned table, represented by {@code this}.
      */
     private final File arrowFile;
 
@@ -21,14 +34,97 @@ public class ArrowTable extends AbstractTable {
      */
     private final RelDataType rowDataType;
 
+    /**
+     * The indices of the columns of the Arrow file represented by {@link this} which are dictionary-encoded.
+     */
+    private final ImmutableBitSet dictionaryEncodedColumns;
+
+    /**
+     * The partitions of the table represented by {@link this}, which is empty if the table is not partitioned.
+     */
+    private final List<ArrowTablePartition> partitions;
+
+    /**
+     * The index of the first partition column of the table represented by {@link this}.
+     */
+    private final int firstPartitionColumn;
+
+    /**
+     * The order in which the rows are stored in the Arrow file represented by {@link this}.
+     */
+    private final RelCollation collation;
+
+    /**
+     * The SQL query materialized in the Arrow file represented by {@link this}, or {@code null} if
+     * the table is not a materialization.
+     */
+    private final @Nullable String materializationQuery;
+
+    /**
+     * The number of rows of the table represented by {@link this}, determined on first use.
+     */
+    private @Nullable Double rowCount;
+
     /**
      * Constructs an {@link ArrowTable} for a specific file with a given schema.
      * @param arrowFile The file to create the instance for.
      * @param rowDataType The proposed schema of the table.
+     * @param dictionaryEncodedColumns The indices of the columns that are dictionary-encoded in the file.
      */
-    public ArrowTable(File arrowFile, RelDataType rowDataType) {
+    public ArrowTable(File arrowFile, RelDataType rowDataType, ImmutableBitSet dictionaryEncodedColumns) {
+        this(arrowFile, rowDataType, dictionaryEncodedColumns, RelCollations.EMPTY);
+    }
+
+    /**
+     * Constructs an {@link ArrowTable} for a specific file with a given schema and row order.
+     * @param arrowFile The file to create the instance for.
+     * @param rowDataType The proposed schema of the table.
+     * @param dictionaryEncodedColumns The indices of the columns that are dictionary-encoded in the file.
+     * @param collation The order in which the rows are stored in the file.
+     */
+    public ArrowTable(File arrowFile, RelDataType rowDataType, ImmutableBitSet dictionaryEncodedColumns, RelCollation collation) {
+        this(arrowFile, rowDataType, dictionaryEncodedColumns, collation, null);
+    }
+
+    /**
+     * Constructs an {@link ArrowTable} for a specific file with a given schema and row order, which
+     * may materialize a SQL query over the other tables of the database.
+     * @param arrowFile The file to create the instance for.
+     * @param rowDataType The proposed schema of the table.
+     * @param dictionaryEncodedColumns The indices of the columns that are dictionary-encoded in the file.
+     * @param collation The order in which the rows are stored in the file.
+     * @param materializationQuery The SQL query materialized in the file, or {@code null} if it is a base table.
+     */
+    public ArrowTable(File arrowFile, RelDataType rowDataType, ImmutableBitSet dictionaryEncodedColumns, RelCollation collation,
+                      @Nullable String materializationQuery) {
+        this(arrowFile, rowDataType, dictionaryEncodedColumns, List.of(), rowDataType.getFieldCount(), collation, materializationQuery);
+    }
+
+    /**
+     * Constructs a partitioned {@link ArrowTable} for a specific directory with a given schema.
+     * @param tableDirectory The directory containing the partitions of the table.
+     * @param rowDataType The proposed schema of the table, ending with the partition columns.
+     * @param dictionaryEncodedColumns The indices of the columns that are dictionary-encoded in the files.
+     * @param partitions The partitions of the table.
+     * @param firstPartitionColumn The index of the first partition column in {@code rowDataType}.
+     */
+    public ArrowTable(File tableDirectory, RelDataType rowDataType, ImmutableBitSet dictionaryEncodedColumns,
+                      List<ArrowTablePartition> partitions, int firstPartitionColumn) {
+        // The rows of different partitions are not ordered with respect to each other
+        this(tableDirectory, rowDataType, dictionaryEncodedColumns, partitions, firstPartitionColumn, RelCollations.EMPTY, null);
+    }
+
+    private ArrowTable(File arrowFile, RelDataType rowDataType, ImmutableBitSet dictionaryEncodedColumns,
+                       List<ArrowTablePartition> partitions, int firstPartitionColumn, RelCollation collation,
+                       @Nullable String materializationQuery) {
         this.arrowFile = arrowFile;
         this.rowDataType = rowDataType;
+        this.dictionaryEncodedColumns = dictionaryEncodedColumns;
+        this.partitions = partitions;
+        this.firstPartitionColumn = firstPartitionColumn;
+        this.collation = collation;
+        this.materializationQuery = materializationQuery;
+        this.rowCount = null;
     }
 
     @Override
@@ -36,6 +132,46 @@ public class ArrowTable extends AbstractTable {
         return this.rowDataType;
     }
 
+    @Override
+    public Statistic getStatistic() {
+        // Only determine the row count when it is actually requested, as this requires reading the files
+        return new Statistic() {
+            @Override
+            public Double getRowCount() {
+                return ArrowTable.this.getRowCount();
+            }
+
+            @Override
+            public @Nullable List<RelCollation> getCollations() {
+                return ArrowTable.this.collation.getFieldCollations().isEmpty()
+                        ? Statistics.UNKNOWN.getCollations()
+                        : List.of(ArrowTable.this.collation);
+            }
+        };
+    }
+
+    /**
+     * Method to obtain the number of rows of the table, which is read from the headers of the record
+     * batches of its files the first time it is requested, unless the files were already read while
+     * planning an earlier query.
+     * @return The number of rows of the table represented by {@link this}, over all its partitions.
+     */
+    public double getRowCount() {
+        if (this.rowCount == null) {
+            long totalRowCount = 0;
+            for (File arrowFile : this.getArrowFiles(this.getAllPartitions())) {
+                try {
+                    totalRowCount += ArrowFileRowCounts.get(arrowFile);
+                } catch (IOException e) {
+                    throw new RuntimeException("Could not determine the row count of arrow file '" + arrowFile.getPath() + "'", e);
+                }
+            }
+            this.rowCount = (double) totalRowCount;
+        }
+
+        return this.rowCount;
+    }
+
     /**
      * Method to obtain the name of a table.
      * @return The name of the table represented by {@link this}.
@@ -46,9 +182,100 @@ public class ArrowTable extends AbstractTable {
 
     /**
      * Method to obtain the file backing the table.
-     * @return The {@link File} backing the table.
+     * @return The {@link File} backing the table, or the directory containing its partitions.
      */
     public File getArrowFile() {
         return this.arrowFile;
     }
+
+    /**
+     * Method to check whether a column of the table is dictionary-encoded.
+     * @param column The index of the column to check.
+     * @return Whether the column with index {@code column} is dictionary-encoded.
+     */
+    public boolean isDictionaryEncoded(int column) {
+        return this.dictionaryEncodedColumns.get(column);
+    }
+
+    /**
+     * Method to obtain the order in which the rows of the table are stored.
+     * @return The collation of the table, which is empty if the rows are not stored in a known order.
+     */
+    public RelCollation getCollation() {
+        return this.collation;
+    }
+
+    /**
+     * Method to check whether the table is a materialization of a SQL query.
+     * @return Whether the table represented by {@link this} materializes a SQL query.
+     */
+    public boolean isMaterialization() {
+        return this.materializationQuery != null;
+    }
+
+    /**
+     * Method to obtain the SQL query materialized by the table.
+     * @return The SQL query materialized in the table, or {@code null} if the table is not a materialization.
+     */
+    public @Nullable String getMaterializationQuery() {
+        return this.materializationQuery;
+    }
+
+    /**
+     * Method to check whether the table is partitioned.
+     * @return Whether the table represented by {@link this} consists of multiple partitions.
+     */
+    public boolean isPartitioned() {
+        return !this.partitions.isEmpty();
+    }
+
+    /**
+     * Method to obtain the partitions of the table.
+     * @return The partitions of the table, which is empty if the table is not partitioned.
+     */
+    public List<ArrowTablePartition> getPartitions() {
+        return this.partitions;
+    }
+
+    /**
+     * Method to obtain the set of all partitions of the table.
+     * @return The indices of all partitions of the table.
+     */
+    public ImmutableBitSet getAllPartitions() {
+        return ImmutableBitSet.range(this.partitions.size());
+    }
+
+    /**
+     * Method to check whether a column of the table is a virtual partition column.
+     * @param column The index of the column to check.
+     * @return Whether the column with index {@code column} is a partition column.
+     */
+    public boolean isPartitionColumn(int column) {
+        return column >= this.firstPartitionColumn;
+    }
+
+    /**
+     * Method to obtain the index of a partition column among the partition keys of the table.
+     * @param column The index of the partition column in the table.
+     * @return The index of the partition key represented by the column.
+     */
+    public int getPartitionKey(int column) {
+        assert isPartitionColumn(column);
+        return column - this.firstPartitionColumn;
+    }
+
+    /**
+     * Method to obtain the Arrow files that need to be read for a selection of partitions of the table.
+     * @param selectedPartitions The partitions to obtain the files for, ignored if the table is not partitioned.
+     * @return The Arrow files backing the selected partitions of the table.
+     */
+    public List<File> getArrowFiles(ImmutableBitSet selectedPartitions) {
+        if (!isPartitioned())
+            return List.of(this.arrowFile);
+
+        List<File> arrowFiles = new ArrayList<>();
+        for (int partition : selectedPartitions)
+            arrowFiles.addAll(this.partitions.get(partition).getArrowFiles());
+        return arrowFiles;
+    }
 }
@@ -0,0 +1,53 @@
+package util.arrow;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Class representing a single partition of a partitioned {@link ArrowTable}, i.e. a directory of Arrow
+ * files identified by the Hive-style {@code key=value} directories leading up to it.
+ */
+public final class ArrowTablePartition {
+
+    /**
+     * The values of the partition keys of this partition, in the order of the partition columns of the table.
+     * A value is {@code null} for the Hive default partition of a key.
+     */
+    private final List<@Nullable Object> partitionValues;
+
+    /**
+     * The Arrow files containing the data of this partition.
+     */
+    private final List<File> arrowFiles;
+
+    /**
+     * Constructs an {@link ArrowTablePartition}.
+     * @param partitionValues The values of the partition keys of the partition.
+     * @param arrowFiles The files containing the data of the partition.
+     */
+    public ArrowTablePartition(List<@Nullable Object> partitionValues, List<File> arrowFiles) {
+        this.partitionValues = partitionValues;
+        this.arrowFiles = arrowFiles;
+    }
+
+    /**
+     * Method to obtain the value of a partition key for this partition.
+     * @param partitionKey The index of the partition key among the partition keys of the table.
+     * @return The value of the partition key, which is a {@link org.apache.calcite.util.DateString},
+     * {@link java.math.BigDecimal} or {@link String} depending on the type of the partition column.
+     */
+    public @Nullable Object getPartitionValue(int partitionKey) {
+        return this.partitionValues.get(partitionKey);
+    }
+
+    /**
+     * Method to obtain the files backing this partition.
+     * @return The Arrow files containing the data of the partition.
+     */
+    public List<File> getArrowFiles() {
+        return this.arrowFiles;
+    }
+
+}
@@ -0,0 +1,123 @@
+import calcite.planner.PlanningDeadline;
+import calcite.planner.StageTimings;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import util.arrow.ArrowTestDatabase;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests which plan queries against a TPC-H database through the full planning pipeline and encode the
+ * resulting plans into the Aethra Engine Plan Format.
+ */
+class PlannerEntryPointTest {
+
+    @Test
+    void joinOnKeyPinnedToConstantIsEncoded(@TempDir Path databaseDirectory) throws Exception {
+        ArrowTestDatabase database = ArrowTestDatabase.tpch(databaseDirectory);
+        String queryPath = database.writeQuery("pinned-join-key", """
+                SELECT o_orderdate, l_extendedprice
+                FROM orders, lineitem
+                WHERE o_orderkey = 5 AND o_orderkey = l_orderkey
+                """);
+
+        String plan = PlannerEntryPoint.internalPlan(database.getPath(), queryPath, false, PlanningDeadline.unbounded(), StageTimings.create());
+
+        // The join still joins on both order key columns, while the constant is filtered on below the join
+        assertEquals(1, operatorLines(plan, "J").size(), plan);
+        assertFalse(operatorLines(plan, "F").isEmpty(), plan);
+    }
+
+    @Test
+    void correlatedAggregateQueryIsEncoded(@TempDir Path databaseDirectory) throws Exception {
+        ArrowTestDatabase database = ArrowTestDatabase.tpch(databaseDirectory);
+        String queryPath = database.writeQuery("q17", """
+                SELECT SUM(l_extendedprice) / 7.0 AS avg_yearly
+                FROM lineitem, part
+                WHERE p_partkey = l_partkey
+                  AND p_brand = 'Brand#23'
+                  AND p_container = 'MED BOX'
+                  AND l_quantity < (
+                    SELECT 0.2 * AVG(l_quantity)
+                    FROM lineitem
+                    WHERE l_partkey = p_partkey
+                  )
+                """);
+
+        String plan = PlannerEntryPoint.internalPlan(database.getPath(), queryPath, false, PlanningDeadline.unbounded(), StageTimings.create());
+
+        // Both the join of the part and lineitem tables and the join with the decorrelated aggregate are encoded,
+        // where the comparison with the aggregate is evaluated by a filter on top of the latter join
+        assertEquals(2, operatorLines(plan, "J").size(), plan);
+        assertTrue(operatorLines(plan, "F").stream().anyMatch(line -> line.contains("<(")), plan);
+    }
+
+    @Test
+    void cheaperMaterializationIsSubstituted(@TempDir Path databaseDirectory) throws Exception {
+        String summaryQuery = """
+                SELECT l_returnflag, l_linestatus, SUM(l_quantity) AS sum_qty, COUNT(*) AS count_order
+                FROM lineitem
+                GROUP BY l_returnflag, l_linestatus
+                """;
+        ArrowTestDatabase database = ArrowTestDatabase.tpch(databaseDirectory)
+                .addMaterialization("lineitem_summary", 4, summaryQuery,
+                        ArrowTestDatabase.charColumn("l_returnflag", 1), ArrowTestDatabase.charColumn("l_linestatus", 1),
+                        ArrowTestDatabase.decimalColumn("sum_qty", 15, 2), ArrowTestDatabase.bigintColumn("count_order"));
+        String queryPath = database.writeQuery("summary", summaryQuery);
+
+        String plan = PlannerEntryPoint.internalPlan(database.getPath(), queryPath, false, PlanningDeadline.unbounded(), StageTimings.create());
+
+        // The four rows of the materialization are read instead of aggregating the lineitem table
+        List<String> scanLines = operatorLines(plan, "S");
+        assertEquals(1, scanLines.size(), plan);
+        assertTrue(scanLines.get(0).startsWith("S;lineitem_summary;"), plan);
+        assertTrue(operatorLines(plan, "A").isEmpty(), plan);
+    }
+
+    @Test
+    void materializationIsNotSubstitutedForUnrelatedQuery(@TempDir Path databaseDirectory) throws Exception {
+        ArrowTestDatabase database = ArrowTestDatabase.tpch(databaseDirectory)
+                .addMaterialization("orders_by_status", 3,
+                        "SELECT o_orderstatus, COUNT(*) AS order_count FROM orders GROUP BY o_orderstatus",
+                        ArrowTestDatabase.charColumn("o_orderstatus", 1), ArrowTestDatabase.bigintColumn("order_count"));
+        String queryPath = database.writeQuery("lineitem-count", "SELECT COUNT(*) AS lineitem_count FROM lineitem");
+
+        String plan = PlannerEntryPoint.internalPlan(database.getPath(), queryPath, false, PlanningDeadline.unbounded(), StageTimings.create());
+
+        List<String> scanLines = operatorLines(plan, "S");
+        assertEquals(1, scanLines.size(), plan);
+        assertTrue(scanLines.get(0).startsWith("S;lineitem;"), plan);
+    }
+
+    @Test
+    void planIsEncodedWhenBudgetIsExceeded(@TempDir Path databaseDirectory) throws Exception {
+        ArrowTestDatabase database = ArrowTestDatabase.tpch(databaseDirectory);
+        String queryPath = database.writeQuery("order-lines", """
+                SELECT o_orderdate, SUM(l_extendedprice) AS revenue
+                FROM orders, lineitem
+                WHERE o_orderkey = l_orderkey AND o_orderdate < DATE '1995-03-15'
+                GROUP BY o_orderdate
+                """);
+
+        // A budget of a single nanosecond passes before the first optional stage is applied
+        String budgetedPlan = PlannerEntryPoint.internalPlanWithBudget(database.getPath(), queryPath, 1);
+
+        assertTrue(budgetedPlan.endsWith("B;true\n"), budgetedPlan);
+        assertEquals(1, operatorLines(budgetedPlan, "J").size(), budgetedPlan);
+        assertEquals(2, operatorLines(budgetedPlan, "S").size(), budgetedPlan);
+        assertEquals(1, operatorLines(budgetedPlan, "T").size(), budgetedPlan);
+    }
+
+    /**
+     * Method which selects the lines of an encoded plan for a given operator type.
+     */
+    private static List<String> operatorLines(String plan, String operatorType) {
+        return plan.lines().filter(line -> line.startsWith(operatorType + ";")).toList();
+    }
+
+}
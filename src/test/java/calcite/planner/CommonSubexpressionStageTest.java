@@ -0,0 +1,103 @@
+package calcite.planner;
+
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.logical.LogicalFilter;
+import org.apache.calcite.rel.logical.LogicalProject;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.sql.fun.SqlStdOperatorTable;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Tests for the factoring out of shared subexpressions by the {@link CommonSubexpressionStage}.
+ */
+class CommonSubexpressionStageTest {
+
+    private final CommonSubexpressionStage stage = new CommonSubexpressionStage("common-subexpressions");
+
+    private final ScanTestFixture fixture = new ScanTestFixture();
+
+    @Test
+    void sharedSubexpressionIsComputedOnce() {
+        // Project(*(a, b), +(*(a, b), c), Scan)
+        RexNode product = this.fixture.call(SqlStdOperatorTable.MULTIPLY, this.fixture.inputRef(0), this.fixture.inputRef(1));
+        RelNode plan = LogicalProject.create(this.fixture.scan, List.of(),
+                List.of(product, this.fixture.call(SqlStdOperatorTable.PLUS, product, this.fixture.inputRef(2))), List.of("x", "y"));
+
+        LogicalProject newPlan = assertInstanceOf(LogicalProject.class, this.stage.apply(plan));
+        assertEquals("[$3, +($3, $2)]", newPlan.getProjects().toString());
+
+        LogicalProject productProject = assertInstanceOf(LogicalProject.class, newPlan.getInput());
+        assertEquals("[$0, $1, $2, *($0, $1)]", productProject.getProjects().toString());
+        assertSame(this.fixture.scan, productProject.getInput());
+    }
+
+    @Test
+    void nestedSharedSubexpressionsAreComputedInDependencyOrder() {
+        // Project(*(a, b), +(*(a, b), c), *(+(*(a, b), c), 2), Scan)
+        RexNode product = this.fixture.call(SqlStdOperatorTable.MULTIPLY, this.fixture.inputRef(0), this.fixture.inputRef(1));
+        RexNode sum = this.fixture.call(SqlStdOperatorTable.PLUS, product, this.fixture.inputRef(2));
+        RexNode doubledSum = this.fixture.call(SqlStdOperatorTable.MULTIPLY, sum, this.fixture.literal(2));
+        RelNode plan = LogicalProject.create(this.fixture.scan, List.of(), List.of(product, sum, doubledSum), List.of("x", "y", "z"));
+
+        LogicalProject newPlan = assertInstanceOf(LogicalProject.class, this.stage.apply(plan));
+        assertEquals("[$3, $4, *($4, 2)]", newPlan.getProjects().toString());
+
+        // The sum refers to the column of the product, rather than computing it again
+        LogicalProject sumProject = assertInstanceOf(LogicalProject.class, newPlan.getInput());
+        assertEquals("[$0, $1, $2, $3, +($3, $2)]", sumProject.getProjects().toString());
+
+        LogicalProject productProject = assertInstanceOf(LogicalProject.class, sumProject.getInput());
+        assertEquals("[$0, $1, $2, *($0, $1)]", productProject.getProjects().toString());
+        assertSame(this.fixture.scan, productProject.getInput());
+    }
+
+    @Test
+    void subexpressionOnlyEvaluatedInCaseBranchesIsNotComputed() {
+        // Project(CASE(<>(b, 0), /(a, b), 0), CASE(<>(b, 0), *(/(a, b), 2), 0), Scan)
+        RexNode divisorIsNotZero = this.fixture.call(SqlStdOperatorTable.NOT_EQUALS, this.fixture.inputRef(1), this.fixture.literal(0));
+        RexNode quotient = this.fixture.call(SqlStdOperatorTable.DIVIDE, this.fixture.inputRef(0), this.fixture.inputRef(1));
+        RexNode doubledQuotient = this.fixture.call(SqlStdOperatorTable.MULTIPLY, quotient, this.fixture.literal(2));
+        RelNode plan = LogicalProject.create(this.fixture.scan, List.of(),
+                List.of(this.fixture.call(SqlStdOperatorTable.CASE, divisorIsNotZero, quotient, this.fixture.literal(0)),
+                        this.fixture.call(SqlStdOperatorTable.CASE, divisorIsNotZero, doubledQuotient, this.fixture.literal(0))),
+                List.of("x", "y"));
+
+        LogicalProject newPlan = assertInstanceOf(LogicalProject.class, this.stage.apply(plan));
+        assertEquals("[CASE($3, /($0, $1), 0), CASE($3, *(/($0, $1), 2), 0)]", newPlan.getProjects().toString());
+
+        // Only the guard is computed, as the division is not evaluated for the rows with a zero divisor
+        LogicalProject guardProject = assertInstanceOf(LogicalProject.class, newPlan.getInput());
+        assertEquals("[$0, $1, $2, <>($1, 0)]", guardProject.getProjects().toString());
+        assertSame(this.fixture.scan, guardProject.getInput());
+    }
+
+    @Test
+    void subexpressionGuardedInFilterIsComputedAboveFilter() {
+        // Project(/(a, b), +(/(a, b), c), Filter(AND(>(b, 0), >(/(a, b), 1)), Scan))
+        RexNode quotient = this.fixture.call(SqlStdOperatorTable.DIVIDE, this.fixture.inputRef(0), this.fixture.inputRef(1));
+        RexNode condition = this.fixture.call(SqlStdOperatorTable.AND,
+                this.fixture.call(SqlStdOperatorTable.GREATER_THAN, this.fixture.inputRef(1), this.fixture.literal(0)),
+                this.fixture.call(SqlStdOperatorTable.GREATER_THAN, quotient, this.fixture.literal(1)));
+        LogicalFilter filter = LogicalFilter.create(this.fixture.scan, condition);
+        RelNode plan = LogicalProject.create(filter, List.of(),
+                List.of(quotient, this.fixture.call(SqlStdOperatorTable.PLUS, quotient, this.fixture.inputRef(2))), List.of("x", "y"));
+
+        LogicalProject newPlan = assertInstanceOf(LogicalProject.class, this.stage.apply(plan));
+        assertEquals("[$3, +($3, $2)]", newPlan.getProjects().toString());
+
+        // The filter only divides for the rows with a positive divisor, so the quotient is computed above it
+        LogicalProject quotientProject = assertInstanceOf(LogicalProject.class, newPlan.getInput());
+        assertEquals("[$0, $1, $2, /($0, $1)]", quotientProject.getProjects().toString());
+
+        LogicalFilter newFilter = assertInstanceOf(LogicalFilter.class, quotientProject.getInput());
+        assertEquals("AND(>($1, 0), >(/($0, $1), 1))", newFilter.getCondition().toString());
+        assertSame(this.fixture.scan, newFilter.getInput());
+    }
+
+}
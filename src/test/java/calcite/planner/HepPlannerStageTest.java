@@ -0,0 +1,95 @@
+package calcite.planner;
+
+import org.apache.calcite.plan.Contexts;
+import org.apache.calcite.plan.RelOptRule;
+import org.apache.calcite.plan.RelOptRuleCall;
+import org.apache.calcite.plan.hep.HepMatchOrder;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.logical.LogicalProject;
+import org.apache.calcite.rel.logical.LogicalValues;
+import org.apache.calcite.rel.rules.ProjectRemoveRule;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the application of a {@link HepPlannerStage} within the {@link PlanningDeadline} of a plan.
+ */
+class HepPlannerStageTest {
+
+    @Test
+    void rewritesAreKeptWhenDeadlinePassesDuringOptionalStage() {
+        PlanningDeadline deadline = PlanningDeadline.after(TimeUnit.MILLISECONDS.toNanos(200));
+        ScanTestFixture fixture = new ScanTestFixture(Contexts.of(deadline));
+        HepPlannerStage stage = HepPlannerStage.builder("slow-projection-removal")
+                .matchOrder(HepMatchOrder.BOTTOM_UP)
+                .addRuleInstance(new SlowProjectRemoveRule())
+                .build();
+
+        // Project(Project(Project(Values)))
+        RelNode plan = LogicalValues.createOneRow(fixture.cluster);
+        for (int i = 0; i < 3; i++)
+            plan = LogicalProject.create(plan, List.of(), List.of(fixture.rexBuilder.makeInputRef(plan, 0)), plan.getRowType());
+
+        RelNode newPlan = stage.apply(plan);
+
+        assertInstanceOf(LogicalValues.class, newPlan);
+        assertTrue(deadline.isExceeded());
+    }
+
+    @Test
+    void optionalStageWithoutDeadlineIsNotExceeded() {
+        PlanningDeadline deadline = PlanningDeadline.after(TimeUnit.MINUTES.toNanos(1));
+        ScanTestFixture fixture = new ScanTestFixture(Contexts.of(deadline));
+        HepPlannerStage stage = HepPlannerStage.builder("projection-removal")
+                .matchOrder(HepMatchOrder.BOTTOM_UP)
+                .addRuleInstance(ProjectRemoveRule.Config.DEFAULT.toRule())
+                .build();
+
+        RelNode values = LogicalValues.createOneRow(fixture.cluster);
+        RelNode plan = LogicalProject.create(values, List.of(), List.of(fixture.rexBuilder.makeInputRef(values, 0)), values.getRowType());
+
+        assertInstanceOf(LogicalValues.class, stage.apply(plan));
+        assertFalse(deadline.isExceeded());
+    }
+
+    @Test
+    void requiredStageNeedsExplicitMatchLimit() {
+        HepPlannerStage.Builder builder = HepPlannerStage.builder("projection-removal")
+                .required()
+                .addRuleInstance(ProjectRemoveRule.Config.DEFAULT.toRule());
+
+        assertThrows(IllegalStateException.class, builder::build);
+    }
+
+    /**
+     * Rule which removes trivial projections, of which the first match takes until the deadline of the plan.
+     */
+    private static final class SlowProjectRemoveRule extends RelOptRule {
+
+        private SlowProjectRemoveRule() {
+            super(operand(LogicalProject.class, any()));
+        }
+
+        @Override
+        public void onMatch(RelOptRuleCall call) {
+            LogicalProject project = call.rel(0);
+            if (!ProjectRemoveRule.isTrivial(project))
+                return;
+
+            PlanningDeadline deadline = PlanningDeadline.of(project);
+            while (!deadline.hasPassed())
+                Thread.onSpinWait();
+
+            call.transformTo(project.getInput());
+        }
+
+    }
+
+}
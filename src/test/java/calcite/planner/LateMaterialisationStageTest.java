@@ -0,0 +1,78 @@
+package calcite.planner;
+
+import calcite.operators.LogicalArrowTableScan;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.logical.LogicalAggregate;
+import org.apache.calcite.rel.logical.LogicalFilter;
+import org.apache.calcite.rel.logical.LogicalProject;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.sql.fun.SqlStdOperatorTable;
+import org.apache.calcite.util.ImmutableBitSet;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for the classification of scan columns by the {@link LateMaterialisationStage}.
+ */
+class LateMaterialisationStageTest {
+
+    private final LateMaterialisationStage stage = new LateMaterialisationStage("late-materialisation");
+
+    private final ScanTestFixture fixture = new ScanTestFixture();
+
+    @Test
+    void columnsOnlyProjectedAboveFilterAreLate() {
+        // Project(a, b, Filter(c > 5, Scan))
+        RelNode plan = LogicalProject.create(cGreaterThanFive(this.fixture.scan), List.of(),
+                List.of(this.fixture.inputRef(0), this.fixture.inputRef(1)), List.of("a", "b"));
+
+        RelNode classifiedPlan = this.stage.apply(plan);
+
+        assertEquals(ImmutableBitSet.of(0, 1), getScan(classifiedPlan).lateColumns);
+    }
+
+    @Test
+    void unfilteredColumnsBelowRootFilterAreLate() {
+        // Filter(c > 5, Scan)
+        RelNode classifiedPlan = this.stage.apply(cGreaterThanFive(this.fixture.scan));
+
+        assertEquals(ImmutableBitSet.of(0, 1), getScan(classifiedPlan).lateColumns);
+    }
+
+    @Test
+    void columnsWithoutSelectiveOperatorAreNotLate() {
+        // Project(a, b, Scan)
+        RelNode plan = LogicalProject.create(this.fixture.scan, List.of(),
+                List.of(this.fixture.inputRef(0), this.fixture.inputRef(1)), List.of("a", "b"));
+
+        RelNode classifiedPlan = this.stage.apply(plan);
+
+        assertEquals(ImmutableBitSet.of(), getScan(classifiedPlan).lateColumns);
+    }
+
+    @Test
+    void columnsAggregatedAboveFilterAreLate() {
+        // Aggregate(group by a, Filter(c > 5, Scan))
+        RelNode plan = LogicalAggregate.create(cGreaterThanFive(this.fixture.scan), List.of(), ImmutableBitSet.of(0), null, List.of());
+
+        RelNode classifiedPlan = this.stage.apply(plan);
+
+        assertEquals(ImmutableBitSet.of(0, 1), getScan(classifiedPlan).lateColumns);
+    }
+
+    private RelNode cGreaterThanFive(RelNode input) {
+        RexNode condition = this.fixture.call(SqlStdOperatorTable.GREATER_THAN, this.fixture.inputRef(2), this.fixture.literal(5));
+        return LogicalFilter.create(input, condition);
+    }
+
+    private static LogicalArrowTableScan getScan(RelNode plan) {
+        RelNode operator = plan;
+        while (!(operator instanceof LogicalArrowTableScan))
+            operator = operator.getInput(0);
+        return (LogicalArrowTableScan) operator;
+    }
+
+}
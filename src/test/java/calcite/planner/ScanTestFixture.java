@@ -0,0 +1,70 @@
+package calcite.planner;
+
+import calcite.operators.LogicalArrowTableScan;
+import org.apache.calcite.plan.Context;
+import org.apache.calcite.plan.Contexts;
+import org.apache.calcite.plan.RelOptCluster;
+import org.apache.calcite.plan.RelOptTable;
+import org.apache.calcite.plan.hep.HepPlanner;
+import org.apache.calcite.plan.hep.HepProgram;
+import org.apache.calcite.prepare.RelOptTableImpl;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.rel.type.RelDataTypeSystem;
+import org.apache.calcite.rex.RexBuilder;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.sql.SqlOperator;
+import org.apache.calcite.sql.type.SqlTypeFactoryImpl;
+import org.apache.calcite.sql.type.SqlTypeName;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Fixture for tests of the planner stages, which provides a cluster and a scan of a table with the
+ * integer columns a ($0), b ($1) and c ($2) to build plans from.
+ */
+final class ScanTestFixture {
+
+    final RelDataTypeFactory typeFactory = new SqlTypeFactoryImpl(RelDataTypeSystem.DEFAULT);
+    final RexBuilder rexBuilder = new RexBuilder(this.typeFactory);
+    final RelOptCluster cluster;
+    final LogicalArrowTableScan scan;
+
+    /**
+     * Constructs a {@link ScanTestFixture} whose planner has an empty context.
+     */
+    ScanTestFixture() {
+        this(Contexts.empty());
+    }
+
+    /**
+     * Constructs a {@link ScanTestFixture}.
+     * @param context The context of the planner of the cluster, e.g. holding the {@link PlanningDeadline} of the plans.
+     */
+    ScanTestFixture(Context context) {
+        this.cluster = RelOptCluster.create(new HepPlanner(HepProgram.builder().build(), context), this.rexBuilder);
+
+        RelDataType integerType = this.typeFactory.createSqlType(SqlTypeName.INTEGER);
+        RelDataType tableType = this.typeFactory.builder()
+                .add("a", integerType)
+                .add("b", integerType)
+                .add("c", integerType)
+                .build();
+        RelOptTable table = RelOptTableImpl.create(null, tableType, List.of("t"), null);
+        this.scan = LogicalArrowTableScan.create(this.cluster, table, List.of(), List.of(0, 1, 2));
+    }
+
+    RexNode inputRef(int index) {
+        return this.rexBuilder.makeInputRef(this.scan, index);
+    }
+
+    RexNode literal(long value) {
+        return this.rexBuilder.makeExactLiteral(BigDecimal.valueOf(value));
+    }
+
+    RexNode call(SqlOperator operator, RexNode... operands) {
+        return this.rexBuilder.makeCall(operator, operands);
+    }
+
+}
@@ -0,0 +1,123 @@
+package calcite.rex;
+
+import org.apache.calcite.avatica.util.DateTimeUtils;
+import org.apache.calcite.avatica.util.TimeUnit;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.rel.type.RelDataTypeSystem;
+import org.apache.calcite.rex.RexBuilder;
+import org.apache.calcite.rex.RexLiteral;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.sql.SqlIntervalQualifier;
+import org.apache.calcite.sql.fun.SqlStdOperatorTable;
+import org.apache.calcite.sql.parser.SqlParserPos;
+import org.apache.calcite.sql.type.SqlTypeFactoryImpl;
+import org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.calcite.util.DateString;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+/**
+ * Tests for the folding of constant expressions by the {@link AethraRexExecutor}.
+ */
+class AethraRexExecutorTest {
+
+    private final RelDataTypeFactory typeFactory = new SqlTypeFactoryImpl(RelDataTypeSystem.DEFAULT);
+    private final RexBuilder rexBuilder = new RexBuilder(this.typeFactory);
+
+    private final RelDataType integerType = this.typeFactory.createSqlType(SqlTypeName.INTEGER);
+
+    @Test
+    void dateMinusDayIntervalIsFolded() {
+        // DATE '1998-12-01' - INTERVAL '90' DAY, as converted from SQL
+        RexNode date = this.rexBuilder.makeDateLiteral(new DateString(1998, 12, 1));
+        RexNode interval = this.rexBuilder.makeIntervalLiteral(BigDecimal.valueOf(90 * DateTimeUtils.MILLIS_PER_DAY),
+                new SqlIntervalQualifier(TimeUnit.DAY, null, SqlParserPos.ZERO));
+        RexNode expression = this.rexBuilder.makeCall(date.getType(), SqlStdOperatorTable.MINUS_DATE, List.of(date, interval));
+
+        RexLiteral folded = assertInstanceOf(RexLiteral.class, reduce(expression));
+
+        assertEquals(new DateString(1998, 9, 2), folded.getValueAs(DateString.class));
+    }
+
+    @Test
+    void dateMinusMonthIntervalIsFolded() {
+        // DATE '1995-03-31' - INTERVAL '1' MONTH
+        RexNode date = this.rexBuilder.makeDateLiteral(new DateString(1995, 3, 31));
+        RexNode interval = this.rexBuilder.makeIntervalLiteral(BigDecimal.ONE,
+                new SqlIntervalQualifier(TimeUnit.MONTH, null, SqlParserPos.ZERO));
+        RexNode expression = this.rexBuilder.makeCall(date.getType(), SqlStdOperatorTable.MINUS_DATE, List.of(date, interval));
+
+        RexLiteral folded = assertInstanceOf(RexLiteral.class, reduce(expression));
+
+        assertEquals(new DateString(1995, 2, 28), folded.getValueAs(DateString.class));
+    }
+
+    @Test
+    void decimalResultIsScaledToResultType() {
+        // 1 + 0.5, both typed DECIMAL(3, 2), which yields DECIMAL(4, 2)
+        RelDataType decimalType = this.typeFactory.createSqlType(SqlTypeName.DECIMAL, 3, 2);
+        RexNode expression = this.rexBuilder.makeCall(SqlStdOperatorTable.PLUS,
+                this.rexBuilder.makeExactLiteral(new BigDecimal("1"), decimalType),
+                this.rexBuilder.makeExactLiteral(new BigDecimal("0.5"), decimalType));
+
+        RexLiteral folded = assertInstanceOf(RexLiteral.class, reduce(expression));
+        BigDecimal value = folded.getValueAs(BigDecimal.class);
+
+        assertEquals(expression.getType(), folded.getType());
+        assertEquals(new BigDecimal("1.50"), value);
+        assertEquals(2, value.scale());
+    }
+
+    @Test
+    void integerArithmeticIsFolded() {
+        // 6 * 7
+        RexNode expression = this.rexBuilder.makeCall(SqlStdOperatorTable.MULTIPLY, integerLiteral(6), integerLiteral(7));
+
+        RexLiteral folded = assertInstanceOf(RexLiteral.class, reduce(expression));
+
+        assertEquals(BigDecimal.valueOf(42), folded.getValueAs(BigDecimal.class));
+        assertEquals(this.integerType, folded.getType());
+    }
+
+    @Test
+    void overflowingIntegerArithmeticIsNotFolded() {
+        // 2147483647 + 1
+        RexNode expression = this.rexBuilder.makeCall(SqlStdOperatorTable.PLUS, integerLiteral(Integer.MAX_VALUE), integerLiteral(1));
+
+        assertEquals(expression, reduce(expression));
+    }
+
+    @Test
+    void overflowingNegationIsNotFolded() {
+        // -(-2147483648)
+        RexNode expression = this.rexBuilder.makeCall(SqlStdOperatorTable.UNARY_MINUS, integerLiteral(Integer.MIN_VALUE));
+
+        assertEquals(expression, reduce(expression));
+    }
+
+    @Test
+    void overflowingCastIsNotFolded() {
+        // CAST(300 AS TINYINT)
+        RexNode expression = this.rexBuilder.makeAbstractCast(this.typeFactory.createSqlType(SqlTypeName.TINYINT), integerLiteral(300));
+
+        assertEquals(expression, reduce(expression));
+    }
+
+    private RexNode integerLiteral(long value) {
+        return this.rexBuilder.makeExactLiteral(BigDecimal.valueOf(value), this.integerType);
+    }
+
+    private RexNode reduce(RexNode expression) {
+        List<RexNode> reducedValues = new ArrayList<>();
+        AethraRexExecutor.INSTANCE.reduce(this.rexBuilder, List.of(expression), reducedValues);
+        return reducedValues.get(0);
+    }
+
+}
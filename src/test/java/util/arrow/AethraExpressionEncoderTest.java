@@ -0,0 +1,172 @@
+package util.arrow;
+
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeSet;
+import com.google.common.collect.TreeRangeSet;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.rel.type.RelDataTypeSystem;
+import org.apache.calcite.rex.RexBuilder;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexUnknownAs;
+import org.apache.calcite.sql.fun.SqlStdOperatorTable;
+import org.apache.calcite.sql.type.SqlTypeFactoryImpl;
+import org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.calcite.util.DateString;
+import org.apache.calcite.util.ImmutableBitSet;
+import org.apache.calcite.util.Sarg;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for the conversion of literals and the rewriting of search arguments by the {@link AethraExpressionEncoder}.
+ */
+class AethraExpressionEncoderTest {
+
+    private final RelDataTypeFactory typeFactory = new SqlTypeFactoryImpl(RelDataTypeSystem.DEFAULT);
+    private final RexBuilder rexBuilder = new RexBuilder(this.typeFactory);
+
+    private final RelDataType integerType = this.typeFactory.createSqlType(SqlTypeName.INTEGER);
+    private final RelDataType decimalType = this.typeFactory.createSqlType(SqlTypeName.DECIMAL, 12, 2);
+
+    @Test
+    void dateLiteralBecomesDaysSinceEpoch() {
+        RexNode column = this.rexBuilder.makeInputRef(this.typeFactory.createSqlType(SqlTypeName.DATE), 0);
+        RexNode literal = this.rexBuilder.makeDateLiteral(new DateString(1998, 12, 1));
+
+        assertEquals("<=($0, 10561)", encode(this.rexBuilder.makeCall(SqlStdOperatorTable.LESS_THAN_OR_EQUAL, column, literal)));
+    }
+
+    @Test
+    void decimalLiteralComparedWithDecimalColumnBecomesUnscaledAtColumnScale() {
+        RexNode column = this.rexBuilder.makeInputRef(this.decimalType, 0);
+        RexNode literal = this.rexBuilder.makeExactLiteral(new BigDecimal("0.05"));
+
+        assertEquals("<($0, 5)", encode(this.rexBuilder.makeCall(SqlStdOperatorTable.LESS_THAN, column, literal)));
+    }
+
+    @Test
+    void integerLiteralAddedToDecimalColumnBecomesUnscaledAtColumnScale() {
+        RexNode column = this.rexBuilder.makeInputRef(this.decimalType, 0);
+        RexNode literal = this.rexBuilder.makeExactLiteral(BigDecimal.ONE, this.integerType);
+
+        assertEquals("-($0, 100)", encode(this.rexBuilder.makeCall(SqlStdOperatorTable.MINUS, column, literal)));
+    }
+
+    @Test
+    void decimalLiteralWhichDoesNotFitColumnScaleKeepsItsOwnScale() {
+        RexNode column = this.rexBuilder.makeInputRef(this.decimalType, 0);
+        RexNode literal = this.rexBuilder.makeExactLiteral(new BigDecimal("0.005"),
+                this.typeFactory.createSqlType(SqlTypeName.DECIMAL, 4, 3));
+
+        assertEquals("<($0, 5:DECIMAL(4, 3))", encode(this.rexBuilder.makeCall(SqlStdOperatorTable.LESS_THAN, column, literal)));
+    }
+
+    @Test
+    void decimalLiteralOfMultiplicationKeepsItsOwnScale() {
+        RexNode column = this.rexBuilder.makeInputRef(this.decimalType, 0);
+        RexNode literal = this.rexBuilder.makeExactLiteral(new BigDecimal("0.2"),
+                this.typeFactory.createSqlType(SqlTypeName.DECIMAL, 2, 1));
+
+        assertEquals("*(2:DECIMAL(2, 1), $0)", encode(this.rexBuilder.makeCall(SqlStdOperatorTable.MULTIPLY, literal, column)));
+    }
+
+    @Test
+    void integerLiteralOfDivisionKeepsItsOwnScale() {
+        RexNode column = this.rexBuilder.makeInputRef(this.decimalType, 0);
+        RexNode literal = this.rexBuilder.makeExactLiteral(BigDecimal.valueOf(7), this.integerType);
+
+        assertEquals("/($0, 7)", encode(this.rexBuilder.makeCall(SqlStdOperatorTable.DIVIDE, column, literal)));
+    }
+
+    @Test
+    void charLiteralComparedWithCharColumnIsPaddedToColumnWidth() {
+        RexNode column = this.rexBuilder.makeInputRef(this.typeFactory.createSqlType(SqlTypeName.CHAR, 10), 0);
+        RexNode literal = this.rexBuilder.makeLiteral("BUILDING");
+
+        assertEquals("=($0, X'4255494C44494E472020')", encode(this.rexBuilder.makeCall(SqlStdOperatorTable.EQUALS, column, literal)));
+    }
+
+    @Test
+    void charLiteralWithTrailingSpacesBeyondColumnWidthIsTruncatedToColumnWidth() {
+        RexNode column = this.rexBuilder.makeInputRef(this.typeFactory.createSqlType(SqlTypeName.CHAR, 10), 0);
+        RexNode literal = this.rexBuilder.makeLiteral("BUILDING    ");
+
+        assertEquals("=($0, X'4255494C44494E472020')", encode(this.rexBuilder.makeCall(SqlStdOperatorTable.EQUALS, column, literal)));
+    }
+
+    @Test
+    void charLiteralLongerThanColumnWidthKeepsDigestForm() {
+        RexNode column = this.rexBuilder.makeInputRef(this.typeFactory.createSqlType(SqlTypeName.CHAR, 10), 0);
+        RexNode literal = this.rexBuilder.makeLiteral("BUILDING CONTRACTORS");
+
+        assertEquals("=($0, 'BUILDING CONTRACTORS')", encode(this.rexBuilder.makeCall(SqlStdOperatorTable.EQUALS, column, literal)));
+    }
+
+    @Test
+    void largeInListBecomesValueSet() {
+        RexNode column = this.rexBuilder.makeInputRef(this.integerType, 0);
+
+        assertEquals("IN_SET($0, 1, 2, 3, 4, 5, 6, 7, 8)", encode(this.rexBuilder.makeIn(column, integerLiterals(8))));
+    }
+
+    @Test
+    void smallInListIsExpandedIntoComparisons() {
+        RexNode column = this.rexBuilder.makeInputRef(this.integerType, 0);
+
+        assertEquals("OR(=($0, 1), =($0, 2), =($0, 3))", encode(this.rexBuilder.makeIn(column, integerLiterals(3))));
+    }
+
+    @Test
+    void largeNotInListBecomesNegatedValueSet() {
+        RexNode column = this.rexBuilder.makeInputRef(this.integerType, 0);
+        RangeSet<BigDecimal> values = TreeRangeSet.create();
+        for (int i = 1; i <= 8; i++)
+            values.add(Range.singleton(BigDecimal.valueOf(i)));
+        Sarg<BigDecimal> excludedValues = Sarg.of(RexUnknownAs.UNKNOWN, values.complement());
+        RexNode search = this.rexBuilder.makeCall(SqlStdOperatorTable.SEARCH, column,
+                this.rexBuilder.makeSearchArgumentLiteral(excludedValues, this.integerType));
+
+        assertEquals("NOT_IN_SET($0, 1, 2, 3, 4, 5, 6, 7, 8)", encode(search));
+    }
+
+    @Test
+    void largeInListOnDictionaryEncodedColumnBecomesDictionaryValueSet() {
+        RexNode column = this.rexBuilder.makeInputRef(this.integerType, 0);
+
+        assertEquals("DICT_IN_SET($0, 1, 2, 3, 4, 5, 6, 7, 8)", encode(this.rexBuilder.makeIn(column, integerLiterals(8)), ImmutableBitSet.of(0)));
+    }
+
+    @Test
+    void valueSetConvertsValuesLikeComparison() {
+        RexNode column = this.rexBuilder.makeInputRef(this.decimalType, 0);
+        List<RexNode> values = new ArrayList<>();
+        for (int i = 1; i <= 8; i++)
+            values.add(this.rexBuilder.makeExactLiteral(BigDecimal.valueOf(i, 1), this.decimalType));
+
+        assertEquals("IN_SET($0, 10, 20, 30, 40, 50, 60, 70, 80)", encode(this.rexBuilder.makeIn(column, values)));
+    }
+
+    private List<RexNode> integerLiterals(int numberOfValues) {
+        List<RexNode> literals = new ArrayList<>(numberOfValues);
+        for (int i = 1; i <= numberOfValues; i++)
+            literals.add(this.rexBuilder.makeExactLiteral(BigDecimal.valueOf(i), this.integerType));
+        return literals;
+    }
+
+    private String encode(RexNode expression) {
+        return encode(expression, ImmutableBitSet.of());
+    }
+
+    private String encode(RexNode expression, ImmutableBitSet dictionaryEncodedColumns) {
+        StringBuilder builder = new StringBuilder();
+        AethraExpressionEncoder.encode(expression, this.rexBuilder, dictionaryEncodedColumns, builder);
+        return builder.toString();
+    }
+
+}
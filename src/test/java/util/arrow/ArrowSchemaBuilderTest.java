@@ -0,0 +1,87 @@
+package util.arrow;
+
+import org.apache.calcite.sql.type.SqlTypeName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the recognition and parsing of Hive-style partition directories by the {@link ArrowSchemaBuilder}.
+ */
+class ArrowSchemaBuilderTest {
+
+    @Test
+    void partitionDirectoryNameIsSplitIntoKeyAndValue() {
+        assertEquals(new ArrowSchemaBuilder.PartitionDirectoryName("l_shipdate", "1998-12-01"),
+                ArrowSchemaBuilder.PartitionDirectoryName.parse("l_shipdate=1998-12-01"));
+    }
+
+    @Test
+    void partitionValueIsUnescaped() {
+        assertEquals(new ArrowSchemaBuilder.PartitionDirectoryName("n_name", "UNITED STATES/=%"),
+                ArrowSchemaBuilder.PartitionDirectoryName.parse("n_name=UNITED STATES%2F%3D%25"));
+    }
+
+    @Test
+    void partitionValueKeepsOnlyTheFirstSeparator() {
+        assertEquals(new ArrowSchemaBuilder.PartitionDirectoryName("expression", "a=b"),
+                ArrowSchemaBuilder.PartitionDirectoryName.parse("expression=a=b"));
+    }
+
+    @Test
+    void defaultPartitionHasNullValue() {
+        assertEquals(new ArrowSchemaBuilder.PartitionDirectoryName("o_orderpriority", null),
+                ArrowSchemaBuilder.PartitionDirectoryName.parse("o_orderpriority=__HIVE_DEFAULT_PARTITION__"));
+    }
+
+    @Test
+    void directoryNameWithoutKeyIsNotAPartitionDirectoryName() {
+        assertNull(ArrowSchemaBuilder.PartitionDirectoryName.parse("backup"));
+        assertNull(ArrowSchemaBuilder.PartitionDirectoryName.parse("=1998"));
+    }
+
+    @Test
+    void directoryWithPartitionDirectoriesIsPartitionedTable(@TempDir Path databaseDirectory) throws IOException {
+        Path tableDirectory = Files.createDirectories(databaseDirectory.resolve("lineitem"));
+        Files.createDirectories(tableDirectory.resolve("l_returnflag=A"));
+        Files.createDirectories(tableDirectory.resolve("scratch"));
+
+        assertTrue(ArrowSchemaBuilder.isPartitionedTableDirectory(tableDirectory.toFile()));
+    }
+
+    @Test
+    void directoryWithoutPartitionDirectoriesIsSkipped(@TempDir Path databaseDirectory) throws IOException {
+        Path otherDirectory = Files.createDirectories(databaseDirectory.resolve("queries"));
+        Files.createDirectories(otherDirectory.resolve("tpch"));
+        Files.writeString(otherDirectory.resolve("q1.sql"), "SELECT 1");
+
+        File emptyDirectory = Files.createDirectories(databaseDirectory.resolve("empty")).toFile();
+
+        assertFalse(ArrowSchemaBuilder.isPartitionedTableDirectory(otherDirectory.toFile()));
+        assertFalse(ArrowSchemaBuilder.isPartitionedTableDirectory(emptyDirectory));
+    }
+
+    @Test
+    void partitionKeyTypeIsInferredFromItsValues() {
+        List<List<String>> rawPartitionValues = List.of(
+                Arrays.asList("1", "1998-12-01", "A"),
+                Arrays.asList("-25", "1995-03-15", "1"),
+                Arrays.asList(null, null, null));
+
+        assertEquals(SqlTypeName.BIGINT, ArrowSchemaBuilder.inferPartitionKeyType(rawPartitionValues, 0));
+        assertEquals(SqlTypeName.DATE, ArrowSchemaBuilder.inferPartitionKeyType(rawPartitionValues, 1));
+        assertEquals(SqlTypeName.VARCHAR, ArrowSchemaBuilder.inferPartitionKeyType(rawPartitionValues, 2));
+    }
+
+}
@@ -0,0 +1,196 @@
+package util.arrow;
+
+import org.apache.arrow.vector.ipc.WriteChannel;
+import org.apache.arrow.vector.ipc.message.ArrowBlock;
+import org.apache.arrow.vector.ipc.message.ArrowFieldNode;
+import org.apache.arrow.vector.ipc.message.ArrowFooter;
+import org.apache.arrow.vector.ipc.message.ArrowRecordBatch;
+import org.apache.arrow.vector.ipc.message.MessageSerializer;
+import org.apache.arrow.vector.types.DateUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Helper class for tests which creates an Arrow database directory on disk. The Arrow files only
+ * contain what the planner reads from them, i.e. the schema and the length of each record batch, and
+ * their record batches carry no column data, so that databases of any size are created instantly.
+ */
+public final class ArrowTestDatabase {
+
+    /**
+     * The magic bytes at the start and end of an Arrow IPC file.
+     */
+    private static final byte[] ARROW_MAGIC = "ARROW1".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * The directory containing the tables of the database.
+     */
+    private final File directory;
+
+    /**
+     * Constructs an {@link ArrowTestDatabase} without any tables.
+     * @param directory The (empty) directory to create the tables of the database in.
+     */
+    public ArrowTestDatabase(Path directory) {
+        this.directory = directory.toFile();
+    }
+
+    /**
+     * Method to create a database with the tables of the TPC-H benchmark at scale factor 1.
+     * @param directory The (empty) directory to create the tables of the database in.
+     * @return The {@link ArrowTestDatabase} containing the TPC-H tables.
+     */
+    public static ArrowTestDatabase tpch(Path directory) throws IOException {
+        return new ArrowTestDatabase(directory)
+                .addTable("region", 5,
+                        integerColumn("r_regionkey"), charColumn("r_name", 25), varcharColumn("r_comment"))
+                .addTable("nation", 25,
+                        integerColumn("n_nationkey"), charColumn("n_name", 25), integerColumn("n_regionkey"),
+                        varcharColumn("n_comment"))
+                .addTable("supplier", 10_000,
+                        integerColumn("s_suppkey"), charColumn("s_name", 25), varcharColumn("s_address"),
+                        integerColumn("s_nationkey"), charColumn("s_phone", 15), decimalColumn("s_acctbal", 15, 2),
+                        varcharColumn("s_comment"))
+                .addTable("part", 200_000,
+                        integerColumn("p_partkey"), varcharColumn("p_name"), charColumn("p_mfgr", 25),
+                        charColumn("p_brand", 10), varcharColumn("p_type"), integerColumn("p_size"),
+                        charColumn("p_container", 10), decimalColumn("p_retailprice", 15, 2), varcharColumn("p_comment"))
+                .addTable("partsupp", 800_000,
+                        integerColumn("ps_partkey"), integerColumn("ps_suppkey"), integerColumn("ps_availqty"),
+                        decimalColumn("ps_supplycost", 15, 2), varcharColumn("ps_comment"))
+                .addTable("customer", 150_000,
+                        integerColumn("c_custkey"), varcharColumn("c_name"), varcharColumn("c_address"),
+                        integerColumn("c_nationkey"), charColumn("c_phone", 15), decimalColumn("c_acctbal", 15, 2),
+                        charColumn("c_mktsegment", 10), varcharColumn("c_comment"))
+                .addTable("orders", 1_500_000,
+                        integerColumn("o_orderkey"), integerColumn("o_custkey"), charColumn("o_orderstatus", 1),
+                        decimalColumn("o_totalprice", 15, 2), dateColumn("o_orderdate"), charColumn("o_orderpriority", 15),
+                        charColumn("o_clerk", 15), integerColumn("o_shippriority"), varcharColumn("o_comment"))
+                .addTable("lineitem", 6_001_215,
+                        integerColumn("l_orderkey"), integerColumn("l_partkey"), integerColumn("l_suppkey"),
+                        integerColumn("l_linenumber"), decimalColumn("l_quantity", 15, 2),
+                        decimalColumn("l_extendedprice", 15, 2), decimalColumn("l_discount", 15, 2),
+                        decimalColumn("l_tax", 15, 2), charColumn("l_returnflag", 1), charColumn("l_linestatus", 1),
+                        dateColumn("l_shipdate"), dateColumn("l_commitdate"), dateColumn("l_receiptdate"),
+                        charColumn("l_shipinstruct", 25), charColumn("l_shipmode", 10), varcharColumn("l_comment"));
+    }
+
+    /**
+     * Method which adds a table to the database.
+     * @param tableName The name of the table to add.
+     * @param rowCount The number of rows of the table.
+     * @param columns The columns of the table.
+     * @return {@code this}.
+     */
+    public ArrowTestDatabase addTable(String tableName, long rowCount, Field... columns) throws IOException {
+        writeArrowFile(new File(this.directory, tableName + ".arrow"), new Schema(List.of(columns)), rowCount);
+        return this;
+    }
+
+    /**
+     * Method which adds a table to the database that materializes a query.
+     * @param tableName The name of the table to add.
+     * @param rowCount The number of rows of the table.
+     * @param query The query materialized in the table, whose select list corresponds to {@code columns}.
+     * @param columns The columns of the table.
+     * @return {@code this}.
+     */
+    public ArrowTestDatabase addMaterialization(String tableName, long rowCount, String query, Field... columns) throws IOException {
+        this.addTable(tableName, rowCount, columns);
+        Files.writeString(new File(this.directory, tableName + ".sql").toPath(), query);
+        return this;
+    }
+
+    /**
+     * Method which writes a query to a file in the {@code queries} subdirectory of the database
+     * directory, which is not a partitioned table and is thus ignored by the {@link ArrowSchemaBuilder}.
+     * @param queryName The name of the query file, without extension.
+     * @param query The SQL text of the query.
+     * @return The path of the query file.
+     */
+    public String writeQuery(String queryName, String query) throws IOException {
+        File queryDirectory = new File(this.directory, "queries");
+        Files.createDirectories(queryDirectory.toPath());
+
+        File queryFile = new File(queryDirectory, queryName + ".sql");
+        Files.writeString(queryFile.toPath(), query);
+        return queryFile.getPath();
+    }
+
+    /**
+     * Method to obtain the path of the database directory.
+     * @return The path of the directory containing the tables of the database.
+     */
+    public String getPath() {
+        return this.directory.getPath();
+    }
+
+    public static Field integerColumn(String name) {
+        return Field.notNullable(name, new ArrowType.Int(32, true));
+    }
+
+    public static Field bigintColumn(String name) {
+        return Field.notNullable(name, new ArrowType.Int(64, true));
+    }
+
+    public static Field decimalColumn(String name, int precision, int scale) {
+        return Field.notNullable(name, new ArrowType.Decimal(precision, scale, 128));
+    }
+
+    public static Field dateColumn(String name) {
+        return Field.notNullable(name, new ArrowType.Date(DateUnit.DAY));
+    }
+
+    public static Field charColumn(String name, int width) {
+        return Field.notNullable(name, new ArrowType.FixedSizeBinary(width));
+    }
+
+    public static Field varcharColumn(String name) {
+        return Field.notNullable(name, new ArrowType.Utf8());
+    }
+
+    /**
+     * Method which writes an Arrow IPC file consisting of the schema message, a record batch message
+     * without body for every {@link Integer#MAX_VALUE} rows, and the footer listing these record batches.
+     */
+    private static void writeArrowFile(File arrowFile, Schema schema, long rowCount) throws IOException {
+        try (
+            FileOutputStream arrowFileStream = new FileOutputStream(arrowFile);
+            WriteChannel out = new WriteChannel(arrowFileStream.getChannel());
+        ) {
+            out.write(ARROW_MAGIC);
+            out.align();
+            MessageSerializer.serialize(out, schema);
+
+            List<ArrowBlock> recordBatches = new ArrayList<>();
+            long remainingRows = rowCount;
+            while (remainingRows > 0) {
+                int batchLength = (int) Math.min(remainingRows, Integer.MAX_VALUE);
+                List<ArrowFieldNode> fieldNodes = new ArrayList<>(schema.getFields().size());
+                for (int i = 0; i < schema.getFields().size(); i++)
+                    fieldNodes.add(new ArrowFieldNode(batchLength, 0));
+
+                try (ArrowRecordBatch recordBatch = new ArrowRecordBatch(batchLength, fieldNodes, List.of())) {
+                    recordBatches.add(MessageSerializer.serialize(out, recordBatch));
+                }
+                remainingRows -= batchLength;
+            }
+
+            long footerStart = out.getCurrentPosition();
+            out.write(new ArrowFooter(schema, List.of(), recordBatches), false);
+            out.writeIntLittleEndian((int) (out.getCurrentPosition() - footerStart));
+            out.write(ARROW_MAGIC);
+        }
+    }
+
+}